@@ -0,0 +1,103 @@
+package library.model;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import library.model.LibraryDatabase.LoanOperation;
+
+/**
+ * Non-blocking access to the changes and persistence of a LibraryDatabase.
+ *
+ * <p>Each change is applied to the in-memory database before its method returns, so it is seen
+ * at once by queries on the database. The facade turns off the database's automatic writes (see
+ * LibraryDatabase.setAutoWrite()), so the change is not written by the calling thread. Instead,
+ * writing happens on a single writer thread, which combines all changes made since its last write
+ * into one write, by LibraryDatabase.save() or, for a testing database, writeToFile(). The returned
+ * future completes, with the same result the LibraryDatabase method would give, only once the
+ * change has been written. A change that fails (a false result) is not waited for: its future is
+ * already complete when it is returned. Changes made directly on the database while the facade is
+ * open are not written by their own methods either; they reach the file with the writer's next
+ * write.
+ *
+ * <p>If a write fails, the futures of all changes waiting for it complete exceptionally with the
+ * IOException.
+ */
+public class AsyncLibraryDatabase implements AutoCloseable {
+
+  // All implementation code is omitted, but comments and declarations
+  // are included, to define the interface used by unit tests.
+
+  /**
+   * Create an asynchronous facade for a database that has its own file (the singleton, or one from
+   * LibraryDatabase.open()), starting its writer thread. The writer writes to that file.
+   *
+   * @param db The database to change
+   * @throws IllegalArgumentException if db is a testing database, which has no file
+   */
+  public AsyncLibraryDatabase(LibraryDatabase db) {
+  }
+
+  /**
+   * Create an asynchronous facade for a testing database (from getInstance(true)), starting its
+   * writer thread. A testing database has no file of its own, so the writer writes it to the given
+   * file instead. Giving a file for a database that has its own is not allowed, since the database
+   * would then be written to two files.
+   *
+   * @param db The testing database to change
+   * @param filename The file the writer thread writes the database to
+   * @throws IllegalArgumentException if db has its own file
+   */
+  public AsyncLibraryDatabase(LibraryDatabase db, String filename) {
+  }
+
+  /** Get the database this facade changes, for queries. */
+  public LibraryDatabase getDatabase() {
+  }
+
+  public CompletableFuture<Boolean> addBook(String title, String author, String callNumber) {
+  }
+
+  public CompletableFuture<Boolean> addBookCopy(String callNumber) {
+  }
+
+  public CompletableFuture<Boolean> addBorrower(
+      String firstName, String lastName, String email, String phone) {
+  }
+
+  public CompletableFuture<Boolean> checkout(String callNumber, int copyNumber, String email) {
+  }
+
+  public CompletableFuture<Boolean> returnCopy(String callNumber, int copyNumber) {
+  }
+
+  public CompletableFuture<Boolean> renew(String callNumber, int copyNumber) {
+  }
+
+  /**
+   * Apply a batch all-or-nothing, with the same checks and results as LibraryDatabase.applyBatch().
+   * As with the other changes, the calling thread never waits for a write: the batch is written by
+   * the writer thread, together with any other pending changes.
+   *
+   * @param operations The operations to apply, in order
+   * @return A future that completes with the per-operation results once the batch has been
+   *     written, or at once if the batch was not applied
+   */
+  public CompletableFuture<List<Boolean>> applyBatch(List<LoanOperation> operations) {
+  }
+
+  /**
+   * Write the database to its file, even if nothing has changed.
+   *
+   * @return A future that completes once every change made before this call has been written
+   */
+  public CompletableFuture<Void> flush() {
+  }
+
+  /**
+   * Write any changes that have not been written yet, then stop the writer thread and turn the
+   * database's automatic writes back on. Later changes through this facade throw
+   * IllegalStateException. Closing a closed facade does nothing.
+   */
+  @Override
+  public void close() {
+  }
+}
@@ -0,0 +1,100 @@
+package library.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import library.model.LibraryDatabase.LoanOperation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class AsyncLibraryDatabaseTest {
+  @TempDir Path dir;
+
+  private LibraryDatabase db;
+  private AsyncLibraryDatabase async;
+  private File file;
+
+  @BeforeEach
+  public void setUp() {
+    db = LibraryDatabase.getInstance(true);
+    db.addBook("Title1", "Author1", "CallNumber1");
+    db.addBookCopy("CallNumber1");
+    db.addBorrower("FirstName1", "LastName1", "Email1", "Phone1");
+    file = dir.resolve("asyncLibrary.db").toFile();
+    async = new AsyncLibraryDatabase(db, file.getPath());
+  }
+
+  @AfterEach
+  public void tearDown() {
+    async.close();
+  }
+
+  @Test
+  public void testChangeAppliedBeforeWrite() throws Exception {
+    CompletableFuture<Boolean> result = async.checkout("CallNumber1", 1, "Email1");
+    // The change is visible at once, whether or not it has been written yet
+    assertTrue(db.isCheckedOut("CallNumber1", 1), "Checkout should be applied immediately");
+    assertSame(db, async.getDatabase(), "Facade should expose its database");
+    assertTrue(result.get(), "Checkout should succeed once written");
+    assertTrue(file.exists(), "Database should be written before the future completes");
+  }
+
+  @Test
+  public void testFailedChangeCompletesImmediately() throws Exception {
+    CompletableFuture<Boolean> result = async.checkout("NonExistentBook", 1, "Email1");
+    assertTrue(result.isDone(), "Failed change should not wait for a write");
+    assertFalse(result.get(), "Failed change should give false");
+  }
+
+  @Test
+  public void testManyChangesAndFlush() throws Exception {
+    CompletableFuture<Boolean> added = async.addBook("Title2", "Author2", "CallNumber2");
+    CompletableFuture<Boolean> copy = async.addBookCopy("CallNumber2");
+    CompletableFuture<Boolean> borrower = async.addBorrower("F2", "L2", "Email2", "P2");
+    CompletableFuture<List<Boolean>> batch =
+        async.applyBatch(
+            List.of(
+                LoanOperation.checkout("CallNumber2", 1, "Email2"),
+                LoanOperation.renew("CallNumber2", 1)));
+    async.flush().get();
+    // Everything before the flush must already be complete
+    assertTrue(added.isDone() && copy.isDone() && borrower.isDone() && batch.isDone());
+    assertTrue(added.get() && copy.get() && borrower.get(), "Changes should succeed");
+    assertEquals(List.of(true, true), batch.get(), "Batch should succeed");
+    assertTrue(async.returnCopy("CallNumber2", 1).get(), "Return should succeed");
+    assertFalse(async.renew("CallNumber2", 1).get(), "Returned copy cannot be renewed");
+  }
+
+  @Test
+  public void testDatabaseWithOwnFile() throws Exception {
+    File own = dir.resolve("ownLibrary.db").toFile();
+    LibraryDatabase opened = LibraryDatabase.open(own.getPath());
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new AsyncLibraryDatabase(opened, file.getPath()),
+        "A database with its own file should not be given a second one");
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new AsyncLibraryDatabase(LibraryDatabase.getInstance(true)),
+        "A testing database needs a file to be written to");
+    try (AsyncLibraryDatabase ownAsync = new AsyncLibraryDatabase(opened)) {
+      assertTrue(ownAsync.addBook("Title1", "Author1", "CallNumber1").get(), "Add should succeed");
+    }
+    assertTrue(own.exists(), "Database should be written to its own file");
+    assertEquals(
+        "\"Title1\",\"Author1\",\"CallNumber1\",0\n",
+        LibraryDatabase.open(own.getPath()).getBookCsv(),
+        "The written file should hold the change");
+  }
+
+  @Test
+  public void testClose() {
+    async.close();
+    assertThrows(IllegalStateException.class, () -> async.addBookCopy("CallNumber1"));
+  }
+}
@@ -3,18 +3,36 @@ package library.model;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.Clock;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 import java.util.NavigableSet;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 import org.javatuples.Pair;
+import org.javatuples.Triplet;
 
 /**
  * Holds all data for the Library, storing it in a file and reading and
  * updating the file as needed.
  *
- * <p>Singleton class: only one instance exists at a time.
+ * <p>getInstance() returns the single shared database, read from the library's file. open()
+ * creates further independent databases, each stored in its own file, and getInstance(true) creates
+ * empty testing databases that have no file.
+ *
+ * <p>Except in a testing database, every successful change is written to the database's file
+ * before the method that made it returns, unless automatic writes are turned off with
+ * setAutoWrite().
+ *
+ * <p>All public methods are safe to call from multiple threads at once. Operations on different
+ * call numbers may run in parallel, but a copy can never be checked out to two borrowers.
  */
 public class LibraryDatabase implements java.io.Serializable {
 
@@ -59,8 +77,54 @@ public class LibraryDatabase implements java.io.Serializable {
     return instance;
   }
 
+  /**
+   * Create a new LibraryDatabase, independent of the singleton and of any other instance, that is
+   * stored in its own file. The database is read from the file if it exists and is empty otherwise,
+   * and changes are written back to the same file, just as the singleton does with its file.
+   *
+   * @param filename The file that holds this database
+   * @return A new LibraryDatabase
+   * @throws IOException if the file exists but cannot be read
+   */
+  public static LibraryDatabase open(String filename) throws IOException {
+  }
+
   //...
 
+  /**
+   * Set the clock the library uses for today's date. checkout() and renew() use it to compute due
+   * dates, and the loan history records the checkout date and the return date from it (the return
+   * date when returnCopy() is called), so the history queries see the same dates. The default is
+   * the system clock in the default time zone. Tests and workload replays can use a fixed or offset
+   * clock to run at a simulated date, and everything they record is dated by that clock.
+   *
+   * @param clock The clock to read today's date from
+   */
+  public void setClock(Clock clock) {
+  }
+
+  /**
+   * Turn automatic writes on or off. While they are on (the default), each method that changes
+   * the library writes the database to its file before it returns, whenever the change succeeds.
+   * While they are off, changes are made in memory only, and reach the file at the next save(),
+   * which lets a caller such as AsyncLibraryDatabase combine many changes into one write. Turning
+   * them back on does not write anything by itself. A testing database has no file, so this has no
+   * effect on it.
+   *
+   * @param autoWrite true to write after every change, false to leave writing to save()
+   */
+  public void setAutoWrite(boolean autoWrite) {
+  }
+
+  /**
+   * Write the database to its own file now, with every change made before this call.
+   *
+   * @throws IOException if writing fails
+   * @throws IllegalStateException if this is a testing database, which has no file
+   */
+  public void save() throws IOException {
+  }
+
   /**
    * Add a book to the library, without knowing anything about objects in the library.
    *
@@ -74,6 +138,8 @@ public class LibraryDatabase implements java.io.Serializable {
 
   /**
    * Add a copy of a book to the library, without knowing anything about objects in the library.
+   * If borrowers are waiting with holds on the book, the new copy is reserved for the borrower at
+   * the front of the queue, as if it had just been returned.
    *
    * @param callNumber
    * @return true if the book copy was added, false if there is no book with that call number
@@ -94,7 +160,61 @@ public class LibraryDatabase implements java.io.Serializable {
   }
 
   /**
-   * Get callNumbers of all books in the library.
+   * Add many books and their copies at once, reading them from CSV in the format produced by
+   * getBookCsv(): "title","author","callNumber",copies. Each line adds a book as addBook() would,
+   * followed by the given number of copies. Lines may be parsed in parallel, but the result is the
+   * same as adding the lines in order. Every line is read and checked before any is added, so if
+   * reading fails or a line is not in the right format, nothing is added and nothing is written.
+   * Otherwise the database is written to its file once at the end. A testing database (from
+   * getInstance(true)) has no file and is never written.
+   *
+   * @param in The CSV to read, one book per line
+   * @return The call numbers of lines that were rejected because a book with that call number
+   *     already exists (in the library or earlier in the input), in input order. Rejected lines add
+   *     no copies.
+   * @throws IOException if reading from in fails
+   * @throws IllegalArgumentException if a line is not in the getBookCsv() format, in which case
+   *     no line is added
+   */
+  public List<String> importBookCsv(Reader in) throws IOException {
+  }
+
+  /**
+   * Add many borrowers at once, reading them from CSV in the format produced by getBorrowerCsv():
+   * "first name","last name","email","phone". Each line adds a borrower as addBorrower() would.
+   * As with importBookCsv(), if reading fails or a line is not in the right format, nothing is
+   * added and nothing is written; otherwise the database is written to its file once at the end,
+   * unless it is a testing database.
+   *
+   * @param in The CSV to read, one borrower per line
+   * @return The emails of lines that were rejected because a borrower with that email already
+   *     exists (in the library or earlier in the input), in input order
+   * @throws IOException if reading from in fails
+   * @throws IllegalArgumentException if a line is not in the getBorrowerCsv() format, in which
+   *     case no line is added
+   */
+  public List<String> importBorrowerCsv(Reader in) throws IOException {
+  }
+
+  /**
+   * Get a read-only view of the library as it is at this moment, for reports that must see a
+   * consistent state. Taking a snapshot does not copy the library, and later changes to this
+   * database, including changes made concurrently by other threads, never show up in the snapshot.
+   * Writers are not blocked while a snapshot is in use.
+   *
+   * <p>All query methods work on the snapshot, including the CSV reports, getCopyInfo() and
+   * writeToFile(). Methods that change the library throw UnsupportedOperationException.
+   *
+   * @return A read-only LibraryDatabase holding the current state
+   */
+  public LibraryDatabase getSnapshot() {
+  }
+
+  /**
+   * Get callNumbers of all books in the library. The set is a live view that changes as books are
+   * added; use getSnapshot().getCallNumbers() for a set that does not change. The view is weakly
+   * consistent: it can be iterated while other threads add books, never throws
+   * ConcurrentModificationException, and may or may not show books added during the iteration.
    *
    * @return A sorted set of all callNumbers.
    */
@@ -103,7 +223,47 @@ public class LibraryDatabase implements java.io.Serializable {
   }
 
   /**
-   * Get emails of all borrowers in the library.
+   * Get callNumbers that start with a prefix, for example all of "QA76.", taken directly from the
+   * sorted set of callNumbers. Like getCallNumbers(), the set is a live view.
+   *
+   * @param prefix The start of the callNumbers to include
+   * @return A sorted set of the callNumbers that start with prefix
+   */
+  public NavigableSet<String> getCallNumbersWithPrefix(String prefix) {
+    return books.navigableKeySet().subSet(prefix, true, prefix + Character.MAX_VALUE, false);
+  }
+
+  /**
+   * Get callNumbers in a range, taken directly from the sorted set of callNumbers. Like
+   * getCallNumbers(), the set is a live view.
+   *
+   * @param from The lowest callNumber to include
+   * @param to The callNumber to stop before (it is not included)
+   * @return A sorted set of the callNumbers from "from" up to but not including "to"
+   */
+  public NavigableSet<String> getCallNumbers(String from, String to) {
+    return books.navigableKeySet().subSet(from, true, to, false);
+  }
+
+  /**
+   * Search for books by words in their title or author. A book matches if every word of the query
+   * starts a word of its title or author, ignoring case, so "core hors" finds "Core Java" by "Cay
+   * Horstmann". Matches are found from an index kept up to date by addBook(), not by looking at
+   * each book.
+   *
+   * @param query The words to search for, separated by spaces
+   * @param offset The number of matches to skip, for paging through results
+   * @param limit The greatest number of matches to return
+   * @return Up to limit matching books, in callNumber order, each in the same format as a line of
+   *     getBookCsv() but without the trailing newline. The list is empty if nothing matches.
+   */
+  public List<String> searchBooks(String query, int offset, int limit) {
+  }
+
+  /**
+   * Get emails of all borrowers in the library. The set is a live view that changes as borrowers
+   * are added; use getSnapshot().getEmails() for a set that does not change. Like getCallNumbers(),
+   * the view is weakly consistent and never throws ConcurrentModificationException.
    *
    * @return A sorted set of all emails.
    */
@@ -131,9 +291,69 @@ public class LibraryDatabase implements java.io.Serializable {
   public String getBorrowerCsv() {
   }
 
+  /**
+   * Return the report of all books, formatting it in parallel. The sorted callNumbers are split
+   * into ranges, each range is formatted by a task on the pool, and the results are joined in
+   * callNumber order.
+   *
+   * @param pool The pool to run the formatting tasks on
+   * @return Exactly the same string as getBookCsv()
+   */
+  public String getBookCsv(ForkJoinPool pool) {
+  }
+
+  /**
+   * Return the report of all borrowers, formatting it in parallel by ranges of emails.
+   *
+   * @param pool The pool to run the formatting tasks on
+   * @return Exactly the same string as getBorrowerCsv()
+   */
+  public String getBorrowerCsv(ForkJoinPool pool) {
+  }
+
+  /**
+   * Write the report of all books, in the same format as getBookCsv(), without building the whole
+   * report in memory. getBookCsv() returns exactly the characters this method writes. To write to
+   * an OutputStream or a channel, wrap it in a Writer (for example with Channels.newWriter).
+   *
+   * @param out The Writer to send the report to. It is not flushed or closed.
+   * @throws IOException if writing to out fails
+   */
+  public void writeBookCsv(Writer out) throws IOException {
+  }
+
+  /**
+   * Write the report of all borrowers, in the same format as getBorrowerCsv(), without building the
+   * whole report in memory. getBorrowerCsv() returns exactly the characters this method writes.
+   *
+   * @param out The Writer to send the report to. It is not flushed or closed.
+   * @throws IOException if writing to out fails
+   */
+  public void writeBorrowerCsv(Writer out) throws IOException {
+  }
+
+  /**
+   * Get the lines of the book report lazily, one line per book in callNumber order, formatted as
+   * in getBookCsv() but without the trailing newline.
+   *
+   * @return A stream of report lines, each produced only when it is consumed
+   */
+  public Stream<String> getBookCsvLines() {
+  }
+
+  /**
+   * Get the lines of the borrower report lazily, one line per borrower in email order, formatted as
+   * in getBorrowerCsv() but without the trailing newline.
+   *
+   * @return A stream of report lines, each produced only when it is consumed
+   */
+  public Stream<String> getBorrowerCsvLines() {
+  }
+
   /**
    * Checkout a book copy to a borrower using their identifiers. Fails if book, copy, or borrower
-   * does not exist, or if the copy is already checked out.
+   * does not exist, if the copy is already checked out, or if the copy is reserved for a different
+   * borrower (see placeHold()). Checking out a copy reserved for the borrower ends the reservation.
    *
    * @param callNumber The call number of the book to check out
    * @param copyNumber The copy number of the book to check out
@@ -143,6 +363,40 @@ public class LibraryDatabase implements java.io.Serializable {
   public boolean checkout(String callNumber, int copyNumber, String email) {
   }
 
+  /**
+   * Check out any copy of a book that the borrower can take. If a copy is reserved for the
+   * borrower (see placeHold()), that copy is checked out, ending the reservation. Otherwise the
+   * lowest-numbered copy that is not checked out or reserved is chosen. Fails if the book or
+   * borrower does not exist, or if there is neither a copy reserved for the borrower nor an
+   * available copy.
+   *
+   * @param callNumber The call number of the book to check out
+   * @param email The email of the borrower checking out the book
+   * @return The copy number that was checked out, or -1 if checkout failed
+   */
+  public int checkoutAnyCopy(String callNumber, String email) {
+  }
+
+  /**
+   * Find the lowest-numbered copy of a book that is not checked out or reserved, without looking
+   * at each copy in turn.
+   *
+   * @param callNumber The call number of the book
+   * @return The copy number, or -1 if the book does not exist or no copy is available
+   */
+  public int findAvailableCopy(String callNumber) {
+  }
+
+  /**
+   * Get the number of copies of a book that are not checked out or reserved, without looking at
+   * each copy.
+   *
+   * @param callNumber The call number of the book
+   * @return The number of available copies, or -1 if the book does not exist
+   */
+  public int getAvailableCount(String callNumber) {
+  }
+
   /**
    * Check if a book is currently checked out (has an active loan).
    *
@@ -153,7 +407,11 @@ public class LibraryDatabase implements java.io.Serializable {
   }
 
   /**
-   * Return a copy of a book that was previously checked out.
+   * Return a copy of a book that was previously checked out. The finished loan is added to the
+   * database's loan history (see getBorrowCountsByBook()), unless recording is turned off with
+   * setHistoryEnabled(). If borrowers are waiting with holds on
+   * the book, the copy is then reserved for the borrower at the front of the queue (see
+   * placeHold()) instead of becoming available.
    *
    * @param callNumber The call number of the book to return
    * @param copyNumber The copy number of the book to return
@@ -162,6 +420,140 @@ public class LibraryDatabase implements java.io.Serializable {
   public boolean returnCopy(String callNumber, int copyNumber) {
   }
 
+  /**
+   * Place a hold on a book for a borrower. If a copy of the book is available, the lowest-numbered
+   * available copy is reserved for the borrower at once. Otherwise the borrower is added to the end
+   * of the book's queue of holds. When a copy of the book is returned or added, it is reserved for
+   * the borrower at the front of the queue, who is removed from the queue. So a book never has
+   * both an available copy and a waiting borrower. A reserved copy can only be checked out by the
+   * borrower it is reserved for.
+   *
+   * @param callNumber The call number of the book
+   * @param email The email of the borrower
+   * @return true if the hold was placed, false if the book or borrower does not exist or the
+   *     borrower already has a hold or reservation for the book
+   */
+  public boolean placeHold(String callNumber, String email) {
+  }
+
+  /**
+   * Cancel a borrower's hold on a book. If a copy is already reserved for them, the reservation is
+   * cancelled instead, and the copy is reserved for the next borrower in the queue, or becomes
+   * available if the queue is empty.
+   *
+   * @param callNumber The call number of the book
+   * @param email The email of the borrower
+   * @return true if a hold or reservation was cancelled, false if the borrower had none
+   */
+  public boolean cancelHold(String callNumber, String email) {
+  }
+
+  /**
+   * Get a borrower's position in the queue of holds on a book.
+   *
+   * @param callNumber The call number of the book
+   * @param email The email of the borrower
+   * @return The position, where 1 is the front of the queue, or -1 if the borrower has no hold
+   */
+  public int getHoldPosition(String callNumber, String email) {
+  }
+
+  /**
+   * Get the borrower a copy of a book is reserved for.
+   *
+   * @param callNumber The call number of the book
+   * @param copyNumber The copy number of the book
+   * @return The borrower's email, or null if the copy is not reserved
+   */
+  public String getReservation(String callNumber, int copyNumber) {
+  }
+
+  /** Receives notice of changes to holds, instead of polling for them. */
+  public interface HoldListener {
+
+    /**
+     * Called when a copy is reserved for a borrower, by returnCopy(), addBookCopy(), placeHold()
+     * or cancelHold(), on the thread that called that method.
+     *
+     * @param callNumber The call number of the book
+     * @param copyNumber The copy number that is reserved
+     * @param email The email of the borrower it is reserved for
+     */
+    void copyReserved(String callNumber, int copyNumber, String email);
+  }
+
+  /**
+   * Register a listener to be told when copies are reserved.
+   *
+   * @param listener The listener to add
+   */
+  public void addHoldListener(HoldListener listener) {
+  }
+
+  /**
+   * Stop telling a listener when copies are reserved.
+   *
+   * @param listener The listener to remove
+   */
+  public void removeHoldListener(HoldListener listener) {
+  }
+
+  /**
+   * One checkout, return or renewal, to be applied as part of a batch by applyBatch().
+   */
+  public static class LoanOperation {
+
+    /**
+     * An operation that checks out a copy, as checkout() does.
+     *
+     * @param callNumber The call number of the book to check out
+     * @param copyNumber The copy number of the book to check out
+     * @param email The email of the borrower checking out the book
+     * @return The checkout operation
+     */
+    public static LoanOperation checkout(String callNumber, int copyNumber, String email) {
+    }
+
+    /**
+     * An operation that returns a copy, as returnCopy() does.
+     *
+     * @param callNumber The call number of the book to return
+     * @param copyNumber The copy number of the book to return
+     * @return The return operation
+     */
+    public static LoanOperation returnCopy(String callNumber, int copyNumber) {
+    }
+
+    /**
+     * An operation that renews a loan, as renew() does.
+     *
+     * @param callNumber The call number of the book to renew
+     * @param copyNumber The copy number of the book to renew
+     * @return The renewal operation
+     */
+    public static LoanOperation renew(String callNumber, int copyNumber) {
+    }
+  }
+
+  /**
+   * Apply a list of checkouts, returns and renewals all-or-nothing. Every operation is checked
+   * first, in order, each one seeing the effect of the operations before it (so a batch may return
+   * a copy and then check it out again). If every operation would succeed, they are all applied and
+   * the database is written to its file once. Otherwise, none of them are applied and nothing is
+   * written. A testing database (from getInstance(true)) has no file and is never written.
+   *
+   * <p>The batch is atomic with respect to other threads: no other change can be made between
+   * checking the operations and applying them, so other threads see either none of the batch or
+   * all of it, and a concurrent checkout of a copy in the batch either fails or makes the batch
+   * fail.
+   *
+   * @param operations The operations to apply, in order
+   * @return One result per operation, with the same meaning as the result of checkout(),
+   *     returnCopy() or renew(). The batch was applied if and only if every result is true.
+   */
+  public List<Boolean> applyBatch(List<LoanOperation> operations) {
+  }
+
   /**
    * Get the due date for a copy of a book that is currently checked out.
    *
@@ -172,6 +564,30 @@ public class LibraryDatabase implements java.io.Serializable {
   public LocalDate getDueDate(String callNumber, int copyNumber) {
   }
 
+  /**
+   * Get the loans that are overdue on a given date, that is, loans due before that date. The time
+   * taken depends on the number of loans found, not on the size of the library.
+   *
+   * @param asOf The date to check against
+   * @return The overdue loans as (callNumber, copyNumber, borrowerEmail), ordered by due date, then
+   *     callNumber, then copyNumber. The list is empty if no loans are overdue.
+   */
+  public List<Triplet<String, Integer, String>> getOverdueLoans(LocalDate asOf) {
+  }
+
+  /**
+   * Get the loans due in a range of dates, for example getLoansDue(today, today.plusDays(3)) for
+   * loans due within three days. The time taken depends on the number of loans found, not on the
+   * size of the library.
+   *
+   * @param from The first due date to include
+   * @param to The last due date to include
+   * @return The loans due from "from" to "to" inclusive as (callNumber, copyNumber, borrowerEmail),
+   *     ordered by due date, then callNumber, then copyNumber
+   */
+  public List<Triplet<String, Integer, String>> getLoansDue(LocalDate from, LocalDate to) {
+  }
+
   /**
    * Renew a book copy loan, extending the due date by 28 days. A loan can only be renewed once and
    * only if the book has not been returned.
@@ -217,9 +633,233 @@ public class LibraryDatabase implements java.io.Serializable {
    *
    * <p>* "QA76.73.J39", 1, "Core Java", "Cay Horstmann", 2025-05-10, false
    *
+   * <p>Loans are listed in order of callNumber, then copyNumber. The time taken depends on the
+   * number of loans the borrower has, not on the size of the library.
+   *
    * @param email The email of the borrower
    * @return A string formatted as above, or null if the borrower does not exist
    */
   public String getBorrowerInfo(String email) {
   }
+
+  /**
+   * Get the number of book copies a borrower currently has checked out.
+   *
+   * @param email The email of the borrower
+   * @return The number of active loans, or -1 if the borrower does not exist
+   */
+  public int getLoanCount(String email) {
+  }
+
+  /**
+   * A successful change to the library, as published to the event stream read by getEvents().
+   */
+  public static class LibraryEvent {
+
+    /**
+     * The kinds of change: one for each method that changes the library, and RESERVE for a copy
+     * being reserved for a borrower, which follows the change that caused it.
+     */
+    public enum Type {
+      ADD_BOOK,
+      ADD_BOOK_COPY,
+      ADD_BORROWER,
+      CHECKOUT,
+      RETURN_COPY,
+      RENEW,
+      PLACE_HOLD,
+      CANCEL_HOLD,
+      RESERVE
+    }
+
+    /** Get the event's sequence number. Each event's number is one more than the last one's. */
+    public long getSequence() {
+    }
+
+    /** Get the kind of change, which tells which of the other getters have values. */
+    public Type getType() {
+    }
+
+    /** Get the call number of the book changed, or null for ADD_BORROWER. */
+    public String getCallNumber() {
+    }
+
+    /**
+     * Get the copy number of the copy changed, or 0 for ADD_BOOK, ADD_BORROWER and PLACE_HOLD. For
+     * ADD_BOOK_COPY, it is the number of the new copy, and for RESERVE, the copy reserved. For
+     * CANCEL_HOLD, it is the copy whose reservation was cancelled, or 0 if the borrower was still
+     * waiting in the queue.
+     */
+    public int getCopyNumber() {
+    }
+
+    /**
+     * Get the email of the borrower, for ADD_BORROWER, CHECKOUT, PLACE_HOLD, CANCEL_HOLD and
+     * RESERVE, or null otherwise.
+     */
+    public String getEmail() {
+    }
+  }
+
+  /**
+   * Read events from the stream of changes. Every successful addBook(), addBookCopy(),
+   * addBorrower(), checkout(), returnCopy() and renew() publishes one event, numbered from 1 in
+   * the order the changes were made. Changes made any other way publish the same events as the
+   * single calls would, one per change: checkoutAnyCopy() publishes a CHECKOUT, an applied
+   * applyBatch() one event per operation in order, importBookCsv() an ADD_BOOK and then one
+   * ADD_BOOK_COPY per copy for each line added, and importBorrowerCsv() an ADD_BORROWER per line
+   * added.
+   *
+   * <p>Holds are published too: a successful placeHold() publishes PLACE_HOLD and cancelHold()
+   * publishes CANCEL_HOLD. Whenever a copy is reserved for a borrower, by placeHold(),
+   * cancelHold(), returnCopy() (including a return in a batch) or addBookCopy() (including an
+   * import), a RESERVE event follows the event of the change that caused it; the borrower leaves
+   * the queue. A checkout of a reserved copy ends the reservation without a separate event. Failed
+   * or rejected changes publish nothing. So consumers that apply the events to their own copy of
+   * the library see every change to books, copies, borrowers, loans, holds and reservations, and
+   * can answer checkout() and the availability queries as this database would.
+   *
+   * <p>The most recent events are held in a fixed-size ring buffer, which any number of consumers
+   * can read from, each keeping track of its own next sequence number. Reading never blocks changes
+   * to the library.
+   *
+   * @param fromSequence The sequence number of the first event wanted
+   * @param maxEvents The greatest number of events to return
+   * @return The events from fromSequence on, in order, or an empty list if there are none yet
+   * @throws IllegalStateException if the event numbered fromSequence has already been dropped
+   *     from the buffer, meaning the consumer fell behind and must re-read the whole library
+   */
+  public List<LibraryEvent> getEvents(long fromSequence, int maxEvents) {
+  }
+
+  /**
+   * Get the sequence number of the most recent event.
+   *
+   * @return The latest sequence number, or 0 if there have been no events
+   */
+  public long getLatestSequence() {
+  }
+
+  /**
+   * Get the sequence number of the oldest event still held. A consumer whose next sequence number
+   * is getting close to falling below this is not keeping up.
+   *
+   * @return The oldest sequence number held, or getLatestSequence() + 1 if none are held
+   */
+  public long getOldestSequence() {
+  }
+
+  /**
+   * Set how many events the ring buffer holds (65536 by default). Events already held are kept, up
+   * to the new size.
+   *
+   * @param capacity The number of events to hold
+   */
+  public void setEventBufferSize(int capacity) {
+  }
+
+  /**
+   * Count how many times each book was borrowed, over loans that have been returned. Each loan is
+   * added to the loan history by returnCopy(). The history is stored apart from the rest of the
+   * database, partitioned by date, so queries only read the dates they cover and never load the
+   * whole history into memory.
+   *
+   * <p>Each database has its own history. For the singleton and for a database from open(), it is
+   * kept in a directory beside the database's file, named after the file with ".history" added. A
+   * testing database (from getInstance(true)) has no file, so it keeps its history in a new
+   * temporary directory, which is deleted when the JVM exits. Its history therefore starts empty,
+   * is not shared with any other database, and does not grow the heap however many loans are
+   * returned. Recording can be turned off with setHistoryEnabled().
+   *
+   * @param from The first checkout date to include
+   * @param to The last checkout date to include
+   * @return A map, sorted by callNumber, from callNumber to the number of returned loans of that
+   *     book checked out from "from" to "to" inclusive. Books with no such loans are left out.
+   */
+  public Map<String, Integer> getBorrowCountsByBook(LocalDate from, LocalDate to) {
+  }
+
+  /**
+   * Count how many loans each borrower has returned, from the loan history.
+   *
+   * @param from The first checkout date to include
+   * @param to The last checkout date to include
+   * @return A map, sorted by email, from email to the number of returned loans that borrower
+   *     checked out from "from" to "to" inclusive. Borrowers with no such loans are left out.
+   */
+  public Map<String, Integer> getBorrowCountsByBorrower(LocalDate from, LocalDate to) {
+  }
+
+  /**
+   * Count the returned loans that were renewed, from the loan history.
+   *
+   * @param from The first checkout date to include
+   * @param to The last checkout date to include
+   * @return The number of renewed loans checked out from "from" to "to" inclusive and since
+   *     returned
+   */
+  public int getRenewalCount(LocalDate from, LocalDate to) {
+  }
+
+  /**
+   * Turn recording of the loan history on or off. It is on by default. While it is off,
+   * returnCopy() adds nothing to the history, so returns do no history work at all; loans already
+   * recorded are kept and still counted by the history queries. Benchmarks and load tests that
+   * return many loans turn it off, so their results are not skewed by a growing history.
+   *
+   * @param enabled true to record returned loans, false to stop recording them
+   */
+  public void setHistoryEnabled(boolean enabled) {
+  }
+
+  /**
+   * Set the size of the cache of formatted report lines. When it is on, lines of getBookCsv() and
+   * results of getCopyInfo() are kept until the book or copy they describe changes (through
+   * addBookCopy(), checkout(), returnCopy() or renew()), so getBookCsv() only formats the books
+   * that changed since it was last called. When the cache is full, the least recently used line is
+   * dropped. The cache never changes the results, only how long they take.
+   *
+   * @param maxEntries The greatest number of lines to keep, or 0 to turn the cache off (the
+   *     default)
+   */
+  public void setReportCacheSize(int maxEntries) {
+  }
+
+  /**
+   * Turn collection of operation metrics on or off. Metrics are off by default, and while they are
+   * off the operations do no extra work. Turning them on starts all counters from zero and
+   * registers the metrics as a JMX MBean named "library.model:type=LibraryDatabase,name=N,id=K".
+   * N is ObjectName.quote() of the database's file name, or of "test" for a testing database, so
+   * any characters in the file name are allowed. K is a number unique to the instance within the
+   * JVM, so each instance has its own MBean even if two instances were opened from the same file.
+   * Turning metrics off unregisters the MBean, and turning them on or off when they already are has
+   * no effect.
+   *
+   * <p>Since each instance's name is unique, the name can only be taken already if other code
+   * registered an MBean under it. In that case the other MBean is left in place, metrics stay off,
+   * and IllegalStateException is thrown.
+   *
+   * @param enabled true to collect metrics, false to stop collecting them
+   */
+  public void setMetricsEnabled(boolean enabled) {
+  }
+
+  /**
+   * Get a snapshot of the operation metrics. For each of checkout, returnCopy, renew, getCopyInfo,
+   * getBorrowerInfo, getBookCsv and writeToFile, the keys are:
+   *
+   * <p>operation.success, operation.failure: number of calls that returned true or a result, and
+   * number that returned false or null (getBookCsv and writeToFile only count successes)
+   *
+   * <p>operation.p50Nanos, operation.p99Nanos, operation.maxNanos: call latency, from a histogram
+   * with about 1% precision
+   *
+   * <p>In addition, writeToFile.bytes is the total number of bytes written, and books, copies,
+   * borrowers and loans give the current number of each. Counters other than these four are only
+   * present while metrics are enabled.
+   *
+   * @return A sorted map from metric name to value, which does not change after it is returned
+   */
+  public Map<String, Long> getMetrics() {
+  }
 }
@@ -0,0 +1,275 @@
+package library.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for the public LibraryDatabase operations, run against a synthetic catalog.
+ *
+ * <p>Each benchmark reports throughput and sampled latency (which includes the p50/p99/p999
+ * percentiles). Run with "-prof gc" to also get the allocation rate per operation.
+ *
+ * <p>The catalog size, copies per book and fraction of copies on loan are JMH parameters, so they
+ * can be overridden on the command line, for example "-p books=1000000 -p loanRatio=0.5".
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LibraryDatabaseBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  public int books;
+
+  @Param({"2"})
+  public int copiesPerBook;
+
+  @Param({"1000"})
+  public int borrowers;
+
+  @Param({"0.25"})
+  public double loanRatio;
+
+  private LibraryDatabase db;
+  private Random random;
+  private File outputFile;
+
+  // Keys built once in setUp, so the measured methods do no formatting or concatenation
+  private String[] callNumbers;
+  private String[] emails;
+
+  // Counters used to generate keys that do not exist yet
+  private int nextBook;
+  private int nextBorrower;
+
+  // The copy cycled through by the loan benchmarks; it is never part of the initial loans
+  private String loanCallNumber;
+  private int loanCopyNumber;
+
+  /** Build the catalog, borrowers and initial loans through the public API. */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    db = LibraryDatabase.getInstance(true);
+    // Run at a fixed simulated date, so every run computes the same due dates
+    db.setClock(Clock.fixed(Instant.parse("2025-01-15T12:00:00Z"), ZoneOffset.UTC));
+    // The loan benchmarks return millions of loans, which must not build up a loan history
+    db.setHistoryEnabled(false);
+    random = new Random(42);
+    callNumbers = new String[books];
+    for (int i = 0; i < books; i++) {
+      callNumbers[i] = callNumber(i);
+      db.addBook("Title" + i, "Author" + (i % 5000), callNumbers[i]);
+      for (int copy = 0; copy < copiesPerBook; copy++) {
+        db.addBookCopy(callNumbers[i]);
+      }
+    }
+    emails = new String[borrowers];
+    for (int i = 0; i < borrowers; i++) {
+      emails[i] = email(i);
+      db.addBorrower("FirstName" + i, "LastName" + i, emails[i], "978-555-" + i);
+    }
+    // Check out a random loanRatio fraction of all copies
+    for (int i = 0; i < books; i++) {
+      for (int copy = 1; copy <= copiesPerBook; copy++) {
+        if (random.nextDouble() < loanRatio) {
+          db.checkout(callNumbers[i], copy, randomEmail());
+        }
+      }
+    }
+    loanCallNumber = callNumbers[0];
+    loanCopyNumber = copiesPerBook + 1;
+    db.addBookCopy(loanCallNumber);
+    nextBook = books;
+    nextBorrower = borrowers;
+    outputFile = File.createTempFile("libraryBenchmark", ".db");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    outputFile.delete();
+  }
+
+  private static String callNumber(int i) {
+    return String.format("QA%07d", i);
+  }
+
+  private static String email(int i) {
+    return "borrower" + i + "@example.com";
+  }
+
+  private String randomCallNumber() {
+    return callNumbers[random.nextInt(books)];
+  }
+
+  private String randomEmail() {
+    return emails[random.nextInt(borrowers)];
+  }
+
+  // addBook and addBorrower build their keys in the measured method, since each key is used once
+
+  @Benchmark
+  public boolean addBook() {
+    int i = nextBook++;
+    return db.addBook("Title" + i, "Author" + (i % 5000), callNumber(i));
+  }
+
+  @Benchmark
+  public boolean addBookCopy() {
+    return db.addBookCopy(randomCallNumber());
+  }
+
+  @Benchmark
+  public boolean addBorrower() {
+    int i = nextBorrower++;
+    return db.addBorrower("FirstName" + i, "LastName" + i, email(i), "978-555-" + i);
+  }
+
+  /** Check out and return the same copy, so the loan state is unchanged between invocations. */
+  @Benchmark
+  public boolean checkoutAndReturn() {
+    return db.checkout(loanCallNumber, loanCopyNumber, randomEmail())
+        & db.returnCopy(loanCallNumber, loanCopyNumber);
+  }
+
+  /** Check out, renew and return the same copy, since a loan can only be renewed once. */
+  @Benchmark
+  public boolean checkoutRenewAndReturn() {
+    return db.checkout(loanCallNumber, loanCopyNumber, randomEmail())
+        & db.renew(loanCallNumber, loanCopyNumber)
+        & db.returnCopy(loanCallNumber, loanCopyNumber);
+  }
+
+  @Benchmark
+  public boolean isCheckedOut() {
+    return db.isCheckedOut(randomCallNumber(), 1);
+  }
+
+  @Benchmark
+  public LocalDate getDueDate() {
+    return db.getDueDate(randomCallNumber(), 1);
+  }
+
+  @Benchmark
+  public String getCopyInfo() {
+    return db.getCopyInfo(randomCallNumber(), 1 + random.nextInt(copiesPerBook));
+  }
+
+  @Benchmark
+  public String getBorrowerInfo() {
+    return db.getBorrowerInfo(randomEmail());
+  }
+
+  @Benchmark
+  public String getBookCsv() {
+    return db.getBookCsv();
+  }
+
+  @Benchmark
+  public String getBorrowerCsv() {
+    return db.getBorrowerCsv();
+  }
+
+  /** A fork-join pool for the parallel reports, so speedup can be compared across pool sizes. */
+  @State(Scope.Benchmark)
+  public static class Pool {
+    @Param({"1", "2", "4", "8", "16", "32"})
+    public int parallelism;
+
+    ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      pool.shutdown();
+    }
+  }
+
+  @Benchmark
+  public String getBookCsvParallel(Pool pool) {
+    return db.getBookCsv(pool.pool);
+  }
+
+  @Benchmark
+  public String getBorrowerCsvParallel(Pool pool) {
+    return db.getBorrowerCsv(pool.pool);
+  }
+
+  @Benchmark
+  public long writeToFile() throws Exception {
+    db.writeToFile(outputFile.getPath());
+    return outputFile.length();
+  }
+
+  /**
+   * The number of changes made before each save, so the cost of a save can be compared with the
+   * number of records that changed since the last one.
+   */
+  @State(Scope.Thread)
+  public static class Changes {
+    @Param({"1", "10", "100", "1000"})
+    public int changesPerSave;
+
+    // The next book whose first copy is changed; successive saves change different books
+    int nextBook;
+  }
+
+  /**
+   * Make changesPerSave changes, each to the first copy of a different book, so the changes touch
+   * that many distinct records. Each change is a pair that leaves the copy as it was: a copy on
+   * loan is returned and checked out again (to a random borrower), and a copy not on loan is
+   * checked out and returned. So the loan ratio stays at loanRatio however many changes are made.
+   */
+  private void makeChanges(Changes changes) {
+    for (int i = 0; i < changes.changesPerSave; i++) {
+      String callNumber = callNumbers[changes.nextBook];
+      changes.nextBook = (changes.nextBook + 1) % books;
+      if (db.returnCopy(callNumber, 1)) {
+        db.checkout(callNumber, 1, randomEmail());
+      } else {
+        db.checkout(callNumber, 1, randomEmail());
+        db.returnCopy(callNumber, 1);
+      }
+    }
+  }
+
+  /** Make changesPerSave changes, then save: with dirty tracking, the cost follows the changes. */
+  @Benchmark
+  public long changesThenWriteToFile(Changes changes) throws Exception {
+    makeChanges(changes);
+    db.writeToFile(outputFile.getPath());
+    return outputFile.length();
+  }
+
+  /** The changes alone, to subtract from changesThenWriteToFile to get the cost of the save. */
+  @Benchmark
+  public int changesWithoutSave(Changes changes) {
+    makeChanges(changes);
+    return changes.nextBook;
+  }
+}
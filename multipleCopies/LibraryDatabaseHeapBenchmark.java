@@ -0,0 +1,110 @@
+package library.model;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the heap a LibraryDatabase holds for a realistic catalog, where author names and title
+ * words repeat across many books, to show what deduplicating those strings saves. Compare the
+ * retainedBytes counter between builds with and without the string dictionary.
+ *
+ * <p>Every title, author and borrower field is built as a new String, as it would be when read
+ * from a form or a file, so any sharing between books comes from the database itself.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Thread)
+public class LibraryDatabaseHeapBenchmark {
+
+  @Param({"1000000"})
+  public int books;
+
+  @Param({"50000"})
+  public int borrowers;
+
+  // About 40,000 distinct author names, and a vocabulary of title words
+  private static final int FIRST_NAMES = 200;
+  private static final int LAST_NAMES = 200;
+  private static final int WORDS = 20000;
+  private static final String[] WORD_TABLE = new String[WORDS];
+
+  static {
+    for (int i = 0; i < WORDS; i++) {
+      WORD_TABLE[i] = word(i);
+    }
+  }
+
+  /** The heap retained by the database built in one invocation, reported alongside the time. */
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class Heap {
+    public long retainedBytes;
+    public long retainedBytesPerBook;
+  }
+
+  private static String word(int i) {
+    String[] syllables = {"ka", "lo", "mi", "ne", "ra", "su", "te", "vo", "za", "pi"};
+    StringBuilder word = new StringBuilder();
+    do {
+      word.append(syllables[i % syllables.length]);
+      i /= syllables.length;
+    } while (i > 0);
+    return word.toString();
+  }
+
+  /** Pick an index in [0, n) with low indexes more likely, as popular names and words are. */
+  private static int skewed(Random random, int n) {
+    double x = random.nextDouble();
+    return (int) (n * x * x * x);
+  }
+
+  private static long usedHeap() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  /** Build the catalog through the public API and record the heap it retains. */
+  @Benchmark
+  public LibraryDatabase buildCatalog(Heap heap) {
+    Random random = new Random(42);
+    long before = usedHeap();
+    LibraryDatabase db = LibraryDatabase.getInstance(true);
+    for (int i = 0; i < books; i++) {
+      StringBuilder title = new StringBuilder(WORD_TABLE[skewed(random, WORDS)]);
+      for (int w = random.nextInt(5); w > 0; w--) {
+        title.append(' ').append(WORD_TABLE[skewed(random, WORDS)]);
+      }
+      String author =
+          "First" + skewed(random, FIRST_NAMES) + " " + "Last" + skewed(random, LAST_NAMES);
+      db.addBook(title.toString(), author, String.format("QA%07d", i));
+      db.addBookCopy(String.format("QA%07d", i));
+    }
+    for (int i = 0; i < borrowers; i++) {
+      db.addBorrower(
+          "First" + skewed(random, FIRST_NAMES),
+          "Last" + skewed(random, LAST_NAMES),
+          "borrower" + i + "@example.edu",
+          String.format("978-555-%04d", random.nextInt(10000)));
+    }
+    heap.retainedBytes = usedHeap() - before;
+    heap.retainedBytesPerBook = heap.retainedBytes / books;
+    return db;
+  }
+}
@@ -0,0 +1,121 @@
+package library.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures startup: the time open() takes to read a database from a file written by writeToFile(),
+ * and the heap the opened database retains. Compare both between file formats, for example the
+ * serialized .db file and a memory-mapped snapshot.
+ *
+ * <p>Each invocation opens the file in a fresh database, so every measurement is a cold open of
+ * the same file, although the operating system may have the file cached after the first one. The
+ * heap is measured before and after each invocation, outside the timed open.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class LibraryDatabaseStartupBenchmark {
+
+  @Param({"100000", "500000"})
+  public int books;
+
+  @Param({"2"})
+  public int copiesPerBook;
+
+  @Param({"50000"})
+  public int borrowers;
+
+  @Param({"0.25"})
+  public double loanRatio;
+
+  private File file;
+
+  // Heap in use before the current invocation, and the database it opened
+  private long heapBefore;
+  private LibraryDatabase opened;
+
+  /** The heap retained by the database opened in one invocation, reported alongside the time. */
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class Heap {
+    public long retainedBytes;
+    public long fileBytes;
+  }
+
+  /** Build the catalog through the public API and write it to the file that is opened. */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    LibraryDatabase db = LibraryDatabase.getInstance(true);
+    Random random = new Random(42);
+    String[] emails = new String[borrowers];
+    for (int i = 0; i < borrowers; i++) {
+      emails[i] = "borrower" + i + "@example.com";
+      db.addBorrower("FirstName" + i, "LastName" + i, emails[i], "978-555-" + i);
+    }
+    for (int i = 0; i < books; i++) {
+      String callNumber = String.format("QA%07d", i);
+      db.addBook("Title" + i, "Author" + (i % 5000), callNumber);
+      for (int copy = 1; copy <= copiesPerBook; copy++) {
+        db.addBookCopy(callNumber);
+        if (random.nextDouble() < loanRatio) {
+          db.checkout(callNumber, copy, emails[random.nextInt(borrowers)]);
+        }
+      }
+    }
+    file = File.createTempFile("libraryStartup", ".db");
+    db.writeToFile(file.getPath());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    file.delete();
+  }
+
+  private static long usedHeap() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  @Setup(Level.Invocation)
+  public void measureHeapBefore() {
+    opened = null;
+    heapBefore = usedHeap();
+  }
+
+  @Benchmark
+  public LibraryDatabase open() throws IOException {
+    opened = LibraryDatabase.open(file.getPath());
+    return opened;
+  }
+
+  /** Record the heap retained by the database just opened, while it is still reachable. */
+  @TearDown(Level.Invocation)
+  public void measureHeapAfter(Heap heap) {
+    heap.retainedBytes = usedHeap() - heapBefore;
+    heap.fileBytes = file.length();
+    opened = null;
+  }
+}
@@ -3,10 +3,33 @@ package library.model;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import library.model.LibraryDatabase.LibraryEvent;
+import library.model.LibraryDatabase.LoanOperation;
+import org.javatuples.Triplet;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class LibraryDatabaseTest {
   private TreeSet<String> callNumbers;
@@ -42,11 +65,106 @@ public class LibraryDatabaseTest {
     assertTrue(callNumbers.tailSet("").equals(db.getCallNumbers()));
   }
 
+  @Test
+  public void testGetCallNumbersWithPrefix() {
+    db.addBook("Core Java", "Cay Horstmann", "QA76.73.J39");
+    db.addBook("Algorithms", "Robert Sedgewick", "QA76.6");
+    db.addBook("Calculus", "James Stewart", "QA303");
+    assertEquals(
+        new TreeSet<String>(List.of("QA76.6", "QA76.73.J39")),
+        db.getCallNumbersWithPrefix("QA76."),
+        "Should find call numbers with the prefix");
+    assertEquals(callNumbers, db.getCallNumbersWithPrefix("Call"), "Should find all of a prefix");
+    assertTrue(db.getCallNumbersWithPrefix("Z").isEmpty(), "Should find nothing for no match");
+  }
+
+  @Test
+  public void testGetCallNumbersRange() {
+    assertEquals(
+        new TreeSet<String>(List.of("CallNumber1", "CallNumber2")),
+        db.getCallNumbers("CallNumber1", "CallNumber3"),
+        "Range should include from but not to");
+  }
+
+  @Test
+  public void testSearchBooks() {
+    db.addBook("Core Java", "Cay Horstmann", "QA76.73.J39");
+    db.addBook("Java Concurrency in Practice", "Brian Goetz", "QA76.73.J38");
+    db.addBookCopy("QA76.73.J39");
+    assertEquals(
+        List.of("\"Core Java\",\"Cay Horstmann\",\"QA76.73.J39\",1"),
+        db.searchBooks("core hors", 0, 10),
+        "Should match title and author word prefixes");
+    assertEquals(
+        List.of(
+            "\"Java Concurrency in Practice\",\"Brian Goetz\",\"QA76.73.J38\",0",
+            "\"Core Java\",\"Cay Horstmann\",\"QA76.73.J39\",1"),
+        db.searchBooks("JAVA", 0, 10),
+        "Should ignore case and list matches in call number order");
+    assertEquals(
+        List.of("\"Core Java\",\"Cay Horstmann\",\"QA76.73.J39\",1"),
+        db.searchBooks("java", 1, 10),
+        "Offset should skip matches");
+    assertEquals(1, db.searchBooks("title", 0, 1).size(), "Limit should cap the matches");
+    assertTrue(db.searchBooks("nothing", 0, 10).isEmpty(), "Should find nothing for no match");
+  }
+
   @Test
   public void testAddBorrower() {
     assertTrue(emails.tailSet("").equals(db.getEmails()));
   }
 
+  @Test
+  public void testSnapshotUnchangedByMutation() {
+    LibraryDatabase snapshot = db.getSnapshot();
+    String bookCsv = db.getBookCsv();
+    db.addBook("Title4", "Author4", "CallNumber4");
+    db.addBookCopy("CallNumber1");
+    db.addBorrower("FirstName3", "LastName3", "Email3", "Phone3");
+    assertTrue(db.checkout("CallNumber1", 1, "Email1"), "Checkout should succeed");
+
+    assertEquals(callNumbers, snapshot.getCallNumbers(), "Snapshot should keep the old books");
+    assertEquals(emails, snapshot.getEmails(), "Snapshot should keep the old borrowers");
+    assertEquals(bookCsv, snapshot.getBookCsv(), "Snapshot should keep the old copy counts");
+    assertFalse(snapshot.isCheckedOut("CallNumber1", 1), "Snapshot should not see the loan");
+    assertEquals(
+        "\"CallNumber1\", 1, \"Title1\", \"Author1\", Available",
+        snapshot.getCopyInfo("CallNumber1", 1),
+        "Snapshot copy info should not see the loan");
+    assertTrue(db.isCheckedOut("CallNumber1", 1), "Database should see the loan");
+  }
+
+  @Test
+  public void testSnapshotIsReadOnly() {
+    LibraryDatabase snapshot = db.getSnapshot();
+    assertThrows(
+        UnsupportedOperationException.class, () -> snapshot.addBook("T", "A", "CallNumber4"));
+    assertThrows(
+        UnsupportedOperationException.class, () -> snapshot.checkout("CallNumber1", 1, "Email1"));
+    assertFalse(db.isCheckedOut("CallNumber1", 1), "Database should be unchanged");
+  }
+
+  @Test
+  public void testSnapshotUnderConcurrentMutation() throws InterruptedException {
+    LibraryDatabase snapshot = db.getSnapshot();
+    Thread writer =
+        new Thread(
+            () -> {
+              for (int i = 0; i < 1000; i++) {
+                db.addBook("Title", "Author", "Concurrent" + i);
+                db.addBorrower("First", "Last", "concurrent" + i, "Phone");
+              }
+            });
+    writer.start();
+    // Reading the snapshot while the writer runs should always give the original contents
+    while (writer.isAlive()) {
+      assertEquals(callNumbers, snapshot.getCallNumbers(), "Snapshot books should not change");
+      assertEquals(emails, snapshot.getEmails(), "Snapshot borrowers should not change");
+    }
+    writer.join();
+    assertEquals(1003, db.getCallNumbers().size(), "Writer should not have been blocked");
+  }
+
   @Test
   public void testAddBookCopy() {
     // Test adding another copy of an existing book
@@ -74,6 +192,90 @@ public class LibraryDatabaseTest {
     assertEquals(expectedCsv, db.getBorrowerCsv());
   }
 
+  @Test
+  public void testWriteBookCsv() throws IOException {
+    StringWriter out = new StringWriter();
+    db.writeBookCsv(out);
+    assertEquals(db.getBookCsv(), out.toString(), "Streamed CSV should match getBookCsv()");
+  }
+
+  @Test
+  public void testWriteBorrowerCsv() throws IOException {
+    StringWriter out = new StringWriter();
+    db.writeBorrowerCsv(out);
+    assertEquals(
+        db.getBorrowerCsv(), out.toString(), "Streamed CSV should match getBorrowerCsv()");
+  }
+
+  @Test
+  public void testParallelCsv() {
+    for (int i = 0; i < 1000; i++) {
+      db.addBook("Title" + i, "Author" + i, String.format("QA%04d", i));
+      db.addBorrower("First" + i, "Last" + i, "email" + i, "Phone" + i);
+    }
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      assertEquals(db.getBookCsv(), db.getBookCsv(pool), "Parallel book CSV should match");
+      assertEquals(
+          db.getBorrowerCsv(), db.getBorrowerCsv(pool), "Parallel borrower CSV should match");
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testCsvLines() {
+    String bookCsv = db.getBookCsvLines().map(line -> line + "\n").collect(Collectors.joining());
+    assertEquals(db.getBookCsv(), bookCsv, "Book CSV lines should match getBookCsv()");
+    String borrowerCsv =
+        db.getBorrowerCsvLines().map(line -> line + "\n").collect(Collectors.joining());
+    assertEquals(db.getBorrowerCsv(), borrowerCsv, "Borrower CSV lines should match");
+  }
+
+  @Test
+  public void testImportBookCsv() throws IOException {
+    // Importing a report into an empty database should reproduce the same report
+    LibraryDatabase imported = LibraryDatabase.getInstance(true);
+    List<String> rejected = imported.importBookCsv(new StringReader(db.getBookCsv()));
+    assertTrue(rejected.isEmpty(), "No books should be rejected");
+    assertEquals(db.getBookCsv(), imported.getBookCsv(), "Imported books should match");
+    assertFalse(imported.checkout("CallNumber1", 2, "Email1"), "No borrowers were imported");
+    assertNull(imported.getCopyInfo("CallNumber1", 3), "Only the listed copies should exist");
+  }
+
+  @Test
+  public void testImportBookCsvDuplicates() throws IOException {
+    String csv =
+        "\"Title4\",\"Author4\",\"CallNumber4\",3\n"
+            + "\"Other\",\"Other\",\"CallNumber1\",5\n"
+            + "\"Again\",\"Again\",\"CallNumber4\",1\n";
+    List<String> rejected = db.importBookCsv(new StringReader(csv));
+    assertEquals(List.of("CallNumber1", "CallNumber4"), rejected, "Duplicates should be rejected");
+    assertNotNull(db.getCopyInfo("CallNumber4", 3), "Imported copies should exist");
+    assertNull(db.getCopyInfo("CallNumber4", 4), "Rejected lines should add no copies");
+    assertNull(db.getCopyInfo("CallNumber1", 3), "Rejected lines should add no copies");
+  }
+
+  @Test
+  public void testImportBookCsvMalformed() throws IOException {
+    String bookCsv = db.getBookCsv();
+    String csv = "\"Title4\",\"Author4\",\"CallNumber4\",1\n" + "not a book line\n";
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> db.importBookCsv(new StringReader(csv)),
+        "Malformed line should be reported");
+    assertEquals(bookCsv, db.getBookCsv(), "No line should be added when one is malformed");
+  }
+
+  @Test
+  public void testImportBorrowerCsv() throws IOException {
+    LibraryDatabase imported = LibraryDatabase.getInstance(true);
+    String csv = db.getBorrowerCsv() + "\"Dup\",\"Dup\",\"Email1\",\"Dup\"\n";
+    List<String> rejected = imported.importBorrowerCsv(new StringReader(csv));
+    assertEquals(List.of("Email1"), rejected, "Duplicate email should be rejected");
+    assertEquals(db.getBorrowerCsv(), imported.getBorrowerCsv(), "Imported borrowers should match");
+  }
+
   // It's possible to write good tests for writeToFile() and readFromFile(), but it would
   // complicate your LibraryDatabase code. The problem is that de-serialization (in readFromFile())
   // creates a new instance of LibraryDatabase, which is a singleton.  But changing that would
@@ -97,6 +299,28 @@ public class LibraryDatabaseTest {
     // class is a singleton.  For now, we won't complicate the class to work around that.
   }
 
+  @Test
+  public void testOpenIndependentInstances(@TempDir Path dir) throws IOException {
+    LibraryDatabase first = LibraryDatabase.open(dir.resolve("first.db").toString());
+    LibraryDatabase second = LibraryDatabase.open(dir.resolve("second.db").toString());
+    assertNotSame(first, second, "Each open should create a new instance");
+    assertTrue(first.getCallNumbers().isEmpty(), "New file should give an empty database");
+
+    assertTrue(first.addBook("Title1", "Author1", "CallNumber1"), "Add should succeed");
+    assertTrue(second.addBook("Title1", "Author1", "CallNumber1"), "Instances are independent");
+    assertTrue(second.addBook("Title2", "Author2", "CallNumber2"), "Add should succeed");
+    assertEquals(1, first.getCallNumbers().size(), "First should not see second's books");
+    assertEquals(2, second.getCallNumbers().size(), "Second should have its own books");
+
+    // Opening the same file again reads back what was written through the first instance
+    assertTrue(first.addBookCopy("CallNumber1"), "Add copy should succeed");
+    LibraryDatabase reopened = LibraryDatabase.open(dir.resolve("first.db").toString());
+    assertEquals(
+        "\"Title1\",\"Author1\",\"CallNumber1\",1\n",
+        reopened.getBookCsv(),
+        "Reopened database should hold the books written to its file");
+  }
+
   @Test
   public void testCheckoutSuccess() {
     // Test successful checkout
@@ -117,6 +341,36 @@ public class LibraryDatabaseTest {
         "Due date should be at most 28 days in future");
   }
 
+  @Test
+  public void testCheckoutWithClock() {
+    Clock clock = Clock.fixed(Instant.parse("2025-01-15T12:00:00Z"), ZoneOffset.UTC);
+    db.setClock(clock);
+    assertTrue(db.checkout("CallNumber1", 1, "Email1"), "Checkout should succeed");
+    assertEquals(
+        LocalDate.of(2025, 2, 12), db.getDueDate("CallNumber1", 1), "Due 28 days after today");
+    assertEquals(
+        "\"CallNumber1\", 1, \"Title1\", \"Author1\", \"Email1\", 2025-02-12, false",
+        db.getCopyInfo("CallNumber1", 1),
+        "Copy info should show the due date from the clock");
+
+    // Renewing extends the due date, not today's date
+    db.setClock(Clock.offset(clock, Duration.ofDays(10)));
+    assertTrue(db.renew("CallNumber1", 1), "Renewal should succeed");
+    assertEquals(
+        LocalDate.of(2025, 3, 12), db.getDueDate("CallNumber1", 1), "Renewal adds 28 days");
+    assertEquals(
+        List.of(Triplet.with("CallNumber1", 1, "Email1")),
+        db.getOverdueLoans(LocalDate.of(2025, 3, 13)),
+        "Overdue query should use the same dates");
+
+    // The loan history is dated by the same clock
+    assertTrue(db.returnCopy("CallNumber1", 1), "Return should succeed");
+    assertEquals(
+        Map.of("CallNumber1", 1),
+        db.getBorrowCountsByBook(LocalDate.of(2025, 1, 15), LocalDate.of(2025, 1, 15)),
+        "History should record the simulated checkout date");
+  }
+
   @Test
   public void testCheckoutInvalidBook() {
     // Try to check out non-existent book
@@ -149,6 +403,102 @@ public class LibraryDatabaseTest {
     assertFalse(secondResult, "Checkout should fail when book is already checked out");
   }
 
+  /** Run a task on several threads, releasing them all at once, and wait for them to finish. */
+  private static void runTogether(int threadCount, IntConsumer task) throws InterruptedException {
+    CountDownLatch start = new CountDownLatch(1);
+    Thread[] threads = new Thread[threadCount];
+    for (int i = 0; i < threads.length; i++) {
+      int index = i;
+      threads[i] =
+          new Thread(
+              () -> {
+                try {
+                  start.await();
+                } catch (InterruptedException e) {
+                  return;
+                }
+                task.accept(index);
+              });
+      threads[i].start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+  }
+
+  @Test
+  public void testConcurrentCheckoutSameCopy() throws InterruptedException {
+    // In each round, many threads race to check out the same copy; exactly one may win
+    AtomicInteger successes = new AtomicInteger();
+    for (int round = 0; round < 200; round++) {
+      successes.set(0);
+      runTogether(
+          8,
+          i -> {
+            if (db.checkout("CallNumber1", 1, (i % 2 == 0) ? "Email1" : "Email2")) {
+              successes.incrementAndGet();
+            }
+          });
+      assertEquals(1, successes.get(), "Only one concurrent checkout of a copy should succeed");
+      assertTrue(db.isCheckedOut("CallNumber1", 1), "Copy should be checked out");
+      assertTrue(db.returnCopy("CallNumber1", 1), "Return should succeed between rounds");
+    }
+  }
+
+  @Test
+  public void testConcurrentCheckoutsAndReturns() throws InterruptedException {
+    // Each thread repeatedly checks out and returns its own copy, while the copies share a book
+    for (int i = 0; i < 6; i++) {
+      db.addBookCopy("CallNumber2"); // Copies 2 through 7
+    }
+    AtomicInteger failures = new AtomicInteger();
+    for (int round = 0; round < 50; round++) {
+      runTogether(
+          6,
+          i -> {
+            for (int repeat = 0; repeat < 100; repeat++) {
+              if (!db.checkout("CallNumber2", i + 2, "Email1")
+                  || !db.returnCopy("CallNumber2", i + 2)) {
+                failures.incrementAndGet();
+              }
+            }
+          });
+    }
+    assertEquals(0, failures.get(), "Checkouts of different copies should not interfere");
+    for (int copyNumber = 1; copyNumber <= 7; copyNumber++) {
+      assertFalse(db.isCheckedOut("CallNumber2", copyNumber), "Every copy should be returned");
+    }
+    assertEquals(0, db.getLoanCount("Email1"), "Every loan should be ended");
+  }
+
+  @Test
+  public void testConcurrentBatchAndCheckout() throws InterruptedException {
+    // A batch races a single checkout of one of its copies; the batch must never apply in part
+    List<LoanOperation> batch =
+        List.of(
+            LoanOperation.checkout("CallNumber1", 1, "Email1"),
+            LoanOperation.checkout("CallNumber3", 1, "Email1"));
+    for (int round = 0; round < 200; round++) {
+      List<List<Boolean>> batchResults = new ArrayList<List<Boolean>>();
+      AtomicInteger checkouts = new AtomicInteger();
+      runTogether(
+          2,
+          i -> {
+            if (i == 0) {
+              batchResults.add(db.applyBatch(batch));
+            } else if (db.checkout("CallNumber3", 1, "Email2")) {
+              checkouts.incrementAndGet();
+            }
+          });
+      boolean applied = batchResults.get(0).equals(List.of(true, true));
+      assertNotEquals(applied, checkouts.get() == 1, "Exactly one of the two should succeed");
+      assertEquals(applied, db.isCheckedOut("CallNumber1", 1), "Batch should apply all or none");
+      db.returnCopy("CallNumber1", 1);
+      assertTrue(db.returnCopy("CallNumber3", 1), "Return should succeed between rounds");
+    }
+  }
+
   @Test
   public void testMultipleCopiesCheckout() {
     // Check out the first copy of CallNumber1
@@ -162,6 +512,43 @@ public class LibraryDatabaseTest {
     assertTrue(db.isCheckedOut("CallNumber1", 2), "Second copy should be checked out");
   }
 
+  @Test
+  public void testFindAvailableCopy() {
+    assertEquals(1, db.findAvailableCopy("CallNumber1"), "Copy 1 should be available first");
+    assertEquals(2, db.getAvailableCount("CallNumber1"), "Both copies should be available");
+
+    assertTrue(db.checkout("CallNumber1", 1, "Email1"), "Checkout should succeed");
+    assertEquals(2, db.findAvailableCopy("CallNumber1"), "Copy 2 should be the available one");
+    assertEquals(1, db.getAvailableCount("CallNumber1"), "One copy should be available");
+
+    assertTrue(db.checkout("CallNumber1", 2, "Email2"), "Checkout should succeed");
+    assertEquals(-1, db.findAvailableCopy("CallNumber1"), "No copy should be available");
+    assertEquals(0, db.getAvailableCount("CallNumber1"), "No copies should be available");
+
+    assertTrue(db.returnCopy("CallNumber1", 1), "Return should succeed");
+    assertEquals(1, db.findAvailableCopy("CallNumber1"), "Returned copy should be available");
+    assertEquals(1, db.getAvailableCount("CallNumber1"), "One copy should be available");
+
+    assertTrue(db.addBookCopy("CallNumber1"), "Adding a copy should succeed");
+    assertEquals(2, db.getAvailableCount("CallNumber1"), "New copy should be available");
+
+    assertEquals(-1, db.findAvailableCopy("NonExistentBook"), "No copy of unknown book");
+    assertEquals(-1, db.getAvailableCount("NonExistentBook"), "Unknown book should give -1");
+  }
+
+  @Test
+  public void testCheckoutAnyCopy() {
+    assertEquals(1, db.checkoutAnyCopy("CallNumber1", "Email1"), "Copy 1 should be checked out");
+    assertEquals(2, db.checkoutAnyCopy("CallNumber1", "Email2"), "Copy 2 should be checked out");
+    assertTrue(db.isCheckedOut("CallNumber1", 2), "Copy 2 should be checked out");
+    assertEquals(-1, db.checkoutAnyCopy("CallNumber1", "Email1"), "No copy should be left");
+
+    assertEquals(-1, db.checkoutAnyCopy("NonExistentBook", "Email1"), "Unknown book should fail");
+    assertEquals(
+        -1, db.checkoutAnyCopy("CallNumber2", "NonExistentEmail"), "Unknown borrower should fail");
+    assertFalse(db.isCheckedOut("CallNumber2", 1), "Failed checkout should not take a copy");
+  }
+
   @Test
   public void testReturnBook() {
     // First checkout the book
@@ -224,6 +611,132 @@ public class LibraryDatabaseTest {
     assertTrue(db.isCheckedOut("CallNumber1", 2), "Second copy should still be checked out");
   }
 
+  @Test
+  public void testHoldQueue() {
+    db.addBorrower("FirstName3", "LastName3", "Email3", "Phone3");
+    // Holds only queue while no copy is available
+    assertTrue(db.checkout("CallNumber2", 1, "Email1"), "Checkout should succeed");
+    assertTrue(db.placeHold("CallNumber2", "Email2"), "First hold should be placed");
+    assertTrue(db.placeHold("CallNumber2", "Email3"), "Second hold should be placed");
+    assertFalse(db.placeHold("CallNumber2", "Email2"), "Duplicate hold should fail");
+    assertFalse(db.placeHold("NonExistentBook", "Email2"), "Hold on unknown book should fail");
+    assertFalse(db.placeHold("CallNumber2", "NonExistentEmail"), "Unknown borrower should fail");
+    assertEquals(1, db.getHoldPosition("CallNumber2", "Email2"), "Email2 should be first");
+    assertEquals(2, db.getHoldPosition("CallNumber2", "Email3"), "Email3 should be second");
+    assertEquals(-1, db.getHoldPosition("CallNumber2", "Email1"), "Email1 has no hold");
+
+    assertTrue(db.cancelHold("CallNumber2", "Email2"), "Cancel should succeed");
+    assertFalse(db.cancelHold("CallNumber2", "Email2"), "Second cancel should fail");
+    assertEquals(1, db.getHoldPosition("CallNumber2", "Email3"), "Email3 should move up");
+  }
+
+  @Test
+  public void testReturnReservesForHold() {
+    List<String> events = new ArrayList<String>();
+    LibraryDatabase.HoldListener listener =
+        (callNumber, copyNumber, email) -> events.add(callNumber + " " + copyNumber + " " + email);
+    db.addHoldListener(listener);
+
+    assertTrue(db.checkout("CallNumber2", 1, "Email1"), "Checkout should succeed");
+    assertTrue(db.placeHold("CallNumber2", "Email2"), "Hold should be placed");
+    assertTrue(db.returnCopy("CallNumber2", 1), "Return should succeed");
+
+    assertEquals(List.of("CallNumber2 1 Email2"), events, "Listener should hear of reservation");
+    assertEquals("Email2", db.getReservation("CallNumber2", 1), "Copy should be reserved");
+    assertEquals(-1, db.getHoldPosition("CallNumber2", "Email2"), "Hold should leave the queue");
+    assertFalse(db.isCheckedOut("CallNumber2", 1), "Reserved copy is not checked out");
+    assertEquals(-1, db.findAvailableCopy("CallNumber2"), "Reserved copy is not available");
+    assertEquals(0, db.getAvailableCount("CallNumber2"), "Reserved copy is not available");
+    assertFalse(db.checkout("CallNumber2", 1, "Email1"), "Others cannot take a reserved copy");
+    assertTrue(db.checkout("CallNumber2", 1, "Email2"), "Holder can take a reserved copy");
+    assertNull(db.getReservation("CallNumber2", 1), "Checkout should end the reservation");
+
+    db.removeHoldListener(listener);
+    assertTrue(db.placeHold("CallNumber2", "Email1"), "Hold should be placed");
+    assertTrue(db.returnCopy("CallNumber2", 1), "Return should succeed");
+    assertEquals(1, events.size(), "Removed listener should not be told");
+  }
+
+  @Test
+  public void testCheckoutAnyCopyTakesReservation() {
+    assertTrue(db.checkout("CallNumber1", 1, "Email1"), "Checkout should succeed");
+    assertTrue(db.checkout("CallNumber1", 2, "Email1"), "Checkout should succeed");
+    assertTrue(db.placeHold("CallNumber1", "Email2"), "Hold should be placed");
+    assertTrue(db.returnCopy("CallNumber1", 2), "Return should succeed");
+    assertEquals("Email2", db.getReservation("CallNumber1", 2), "Copy 2 should be reserved");
+    assertEquals(-1, db.checkoutAnyCopy("CallNumber1", "Email1"), "Others get no reserved copy");
+    // With the queue empty, copy 1 becomes available, but the borrower's reservation comes first
+    assertTrue(db.returnCopy("CallNumber1", 1), "Return should succeed");
+    assertEquals(2, db.checkoutAnyCopy("CallNumber1", "Email2"), "Should take the reserved copy");
+    assertNull(db.getReservation("CallNumber1", 2), "Checkout should end the reservation");
+    assertEquals(1, db.findAvailableCopy("CallNumber1"), "Copy 1 should still be available");
+  }
+
+  @Test
+  public void testHoldWithAvailableCopy() {
+    // A hold on a book with a free copy reserves that copy at once instead of queueing
+    assertTrue(db.checkout("CallNumber1", 1, "Email1"), "Checkout should succeed");
+    assertTrue(db.placeHold("CallNumber1", "Email2"), "Hold should be placed");
+    assertEquals("Email2", db.getReservation("CallNumber1", 2), "Free copy should be reserved");
+    assertEquals(-1, db.getHoldPosition("CallNumber1", "Email2"), "Borrower should not queue");
+    assertFalse(db.placeHold("CallNumber1", "Email2"), "Reserved borrower cannot hold again");
+  }
+
+  @Test
+  public void testAddedCopyReservedForHold() {
+    assertTrue(db.checkout("CallNumber3", 1, "Email1"), "Checkout should succeed");
+    assertTrue(db.placeHold("CallNumber3", "Email2"), "Hold should be placed");
+    assertEquals(1, db.getHoldPosition("CallNumber3", "Email2"), "Borrower should queue");
+
+    assertTrue(db.addBookCopy("CallNumber3"), "Adding a copy should succeed");
+    assertEquals("Email2", db.getReservation("CallNumber3", 2), "New copy should be reserved");
+    assertEquals(-1, db.getHoldPosition("CallNumber3", "Email2"), "Hold should leave the queue");
+    assertFalse(db.checkout("CallNumber3", 2, "Email1"), "New copy cannot jump the queue");
+    assertEquals(-1, db.checkoutAnyCopy("CallNumber3", "Email1"), "No copy should be available");
+  }
+
+  @Test
+  public void testCancelReservation() {
+    assertTrue(db.checkout("CallNumber3", 1, "Email1"), "Checkout should succeed");
+    assertTrue(db.placeHold("CallNumber3", "Email2"), "Hold should be placed");
+    assertTrue(db.returnCopy("CallNumber3", 1), "Return should succeed");
+    assertTrue(db.cancelHold("CallNumber3", "Email2"), "Cancel should end the reservation");
+    assertNull(db.getReservation("CallNumber3", 1), "Copy should no longer be reserved");
+    assertEquals(1, db.findAvailableCopy("CallNumber3"), "Copy should be available again");
+  }
+
+  @Test
+  public void testApplyBatch() {
+    assertTrue(db.checkout("CallNumber2", 1, "Email2"), "Checkout should succeed");
+    List<Boolean> results =
+        db.applyBatch(
+            List.of(
+                LoanOperation.checkout("CallNumber1", 1, "Email1"),
+                LoanOperation.checkout("CallNumber1", 2, "Email1"),
+                LoanOperation.renew("CallNumber1", 1),
+                LoanOperation.returnCopy("CallNumber2", 1),
+                LoanOperation.checkout("CallNumber2", 1, "Email1")));
+    assertEquals(List.of(true, true, true, true, true), results, "Every operation should succeed");
+    assertTrue(db.isCheckedOut("CallNumber1", 2), "Batch checkout should be applied");
+    assertFalse(db.renew("CallNumber1", 1), "Batch renewal should be applied");
+    assertTrue(db.getCopyInfo("CallNumber2", 1).contains("Email1"), "Copy should be re-lent");
+  }
+
+  @Test
+  public void testApplyBatchAllOrNothing() {
+    List<Boolean> results =
+        db.applyBatch(
+            List.of(
+                LoanOperation.checkout("CallNumber1", 1, "Email1"),
+                LoanOperation.checkout("CallNumber1", 1, "Email2"),
+                LoanOperation.returnCopy("CallNumber3", 1),
+                LoanOperation.checkout("CallNumber2", 1, "Email2")));
+    assertEquals(List.of(true, false, false, true), results, "Results should match single calls");
+    assertFalse(db.isCheckedOut("CallNumber1", 1), "Failed batch should apply nothing");
+    assertFalse(db.isCheckedOut("CallNumber2", 1), "Failed batch should apply nothing");
+    assertTrue(db.applyBatch(List.of()).isEmpty(), "Empty batch should give no results");
+  }
+
   @Test
   public void testGetDueDateForNonCheckedOutBook() {
     // Due date should be null for a book that is not checked out
@@ -254,6 +767,49 @@ public class LibraryDatabaseTest {
     assertFalse(returned, "Return should fail for book that's not checked out");
   }
 
+  @Test
+  public void testGetOverdueLoans() {
+    assertTrue(db.checkout("CallNumber1", 1, "Email1"), "First checkout should succeed");
+    assertTrue(db.checkout("CallNumber2", 1, "Email2"), "Second checkout should succeed");
+    assertTrue(db.renew("CallNumber2", 1), "Renewal should succeed");
+    LocalDate dueDate = db.getDueDate("CallNumber1", 1);
+
+    assertTrue(db.getOverdueLoans(dueDate).isEmpty(), "Nothing is overdue on its due date");
+    assertEquals(
+        List.of(Triplet.with("CallNumber1", 1, "Email1")),
+        db.getOverdueLoans(dueDate.plusDays(1)),
+        "Loan should be overdue the day after its due date");
+    assertEquals(
+        List.of(Triplet.with("CallNumber1", 1, "Email1"), Triplet.with("CallNumber2", 1, "Email2")),
+        db.getOverdueLoans(dueDate.plusDays(29)),
+        "Renewed loan should be overdue after its extended due date");
+
+    assertTrue(db.returnCopy("CallNumber1", 1), "Return should succeed");
+    assertEquals(
+        List.of(Triplet.with("CallNumber2", 1, "Email2")),
+        db.getOverdueLoans(dueDate.plusDays(29)),
+        "Returned loan should no longer be overdue");
+  }
+
+  @Test
+  public void testGetLoansDue() {
+    assertTrue(db.checkout("CallNumber1", 2, "Email1"), "First checkout should succeed");
+    assertTrue(db.checkout("CallNumber1", 1, "Email2"), "Second checkout should succeed");
+    LocalDate today = LocalDate.now();
+
+    assertTrue(db.getLoansDue(today, today.plusDays(3)).isEmpty(), "Nothing due within 3 days");
+    assertEquals(
+        List.of(Triplet.with("CallNumber1", 1, "Email2"), Triplet.with("CallNumber1", 2, "Email1")),
+        db.getLoansDue(today, today.plusDays(28)),
+        "Both loans should be due within 28 days, in copy order");
+
+    assertTrue(db.renew("CallNumber1", 1), "Renewal should succeed");
+    assertEquals(
+        List.of(Triplet.with("CallNumber1", 2, "Email1")),
+        db.getLoansDue(today, today.plusDays(28)),
+        "Renewed loan should move out of the range");
+  }
+
   @Test
   public void testRenewLoan() {
     // Checkout a book
@@ -343,6 +899,46 @@ public class LibraryDatabaseTest {
     assertTrue(copyInfo.contains("true"), "Copy info should show as renewed");
   }
 
+  @Test
+  public void testReportCacheInvalidation() {
+    db.setReportCacheSize(100);
+    String available = "\"CallNumber1\", 1, \"Title1\", \"Author1\", Available";
+    assertEquals(available, db.getCopyInfo("CallNumber1", 1), "Should format available copy");
+
+    assertTrue(db.checkout("CallNumber1", 1, "Email1"), "Checkout should succeed");
+    String dueDate = db.getDueDate("CallNumber1", 1).toString();
+    assertEquals(
+        "\"CallNumber1\", 1, \"Title1\", \"Author1\", \"Email1\", " + dueDate + ", false",
+        db.getCopyInfo("CallNumber1", 1),
+        "Checkout should replace the cached line");
+    assertEquals(
+        "\"CallNumber1\", 2, \"Title1\", \"Author1\", Available",
+        db.getCopyInfo("CallNumber1", 2),
+        "Other copy should be unaffected");
+
+    assertTrue(db.renew("CallNumber1", 1), "Renewal should succeed");
+    assertTrue(db.getCopyInfo("CallNumber1", 1).endsWith(", true"), "Renewal should show");
+    assertTrue(db.returnCopy("CallNumber1", 1), "Return should succeed");
+    assertEquals(available, db.getCopyInfo("CallNumber1", 1), "Return should show");
+
+    db.getBookCsv();
+    assertTrue(db.addBookCopy("CallNumber2"), "Adding a copy should succeed");
+    assertTrue(
+        db.getBookCsv().contains("\"CallNumber2\",2\n"), "New copy should be in the CSV");
+  }
+
+  @Test
+  public void testReportCacheEviction() {
+    // A cache too small for the report must still give the same results
+    String bookCsv = db.getBookCsv();
+    db.setReportCacheSize(1);
+    assertEquals(bookCsv, db.getBookCsv(), "CSV should be unchanged");
+    assertEquals(bookCsv, db.getBookCsv(), "CSV should be unchanged after eviction");
+    assertNotNull(db.getCopyInfo("CallNumber3", 1), "Copy info should still be found");
+    db.setReportCacheSize(0);
+    assertEquals(bookCsv, db.getBookCsv(), "CSV should be unchanged with the cache off");
+  }
+
   @Test
   public void testGetCopyInfoNonExistent() {
     // Test with non-existent call number
@@ -411,6 +1007,224 @@ public class LibraryDatabaseTest {
     assertEquals(borrowerInfo, expected, "Borrower info should match expected format");
   }
 
+  @Test
+  public void testGetLoanCount() {
+    assertEquals(0, db.getLoanCount("Email1"), "New borrower should have no loans");
+    assertTrue(db.checkout("CallNumber1", 1, "Email1"), "First checkout should succeed");
+    assertTrue(db.checkout("CallNumber1", 2, "Email1"), "Second checkout should succeed");
+    assertTrue(db.checkout("CallNumber2", 1, "Email2"), "Third checkout should succeed");
+    assertEquals(2, db.getLoanCount("Email1"), "Borrower should have 2 loans");
+    assertEquals(1, db.getLoanCount("Email2"), "Other borrower should have 1 loan");
+
+    // Renewing keeps the loan, returning ends it
+    assertTrue(db.renew("CallNumber1", 1), "Renewal should succeed");
+    assertEquals(2, db.getLoanCount("Email1"), "Renewal should not change the loan count");
+    assertTrue(db.returnCopy("CallNumber1", 1), "Return should succeed");
+    assertEquals(1, db.getLoanCount("Email1"), "Return should remove the loan");
+    assertFalse(
+        db.getBorrowerInfo("Email1").contains("* \"CallNumber1\", 1,"),
+        "Returned loan should not be listed");
+
+    assertEquals(-1, db.getLoanCount("NonExistentEmail"), "Unknown borrower should give -1");
+  }
+
+  @Test
+  public void testEvents() {
+    // setUp made 3 books, 4 copies and 2 borrowers
+    long start = db.getLatestSequence();
+    assertEquals(9, start, "Each change in setUp should publish an event");
+    assertTrue(db.getEvents(start + 1, 10).isEmpty(), "There should be no new events yet");
+
+    assertTrue(db.checkout("CallNumber1", 2, "Email1"), "Checkout should succeed");
+    assertFalse(db.checkout("CallNumber1", 2, "Email2"), "Second checkout should fail");
+    assertTrue(db.renew("CallNumber1", 2), "Renewal should succeed");
+    assertTrue(db.returnCopy("CallNumber1", 2), "Return should succeed");
+    assertTrue(db.addBookCopy("CallNumber3"), "Adding a copy should succeed");
+
+    List<LibraryEvent> events = db.getEvents(start + 1, 10);
+    assertEquals(4, events.size(), "Only successful changes should publish events");
+    LibraryEvent checkout = events.get(0);
+    assertEquals(start + 1, checkout.getSequence(), "Sequence numbers should follow on");
+    assertEquals(LibraryEvent.Type.CHECKOUT, checkout.getType());
+    assertEquals("CallNumber1", checkout.getCallNumber());
+    assertEquals(2, checkout.getCopyNumber());
+    assertEquals("Email1", checkout.getEmail());
+    assertEquals(LibraryEvent.Type.RENEW, events.get(1).getType());
+    assertEquals(LibraryEvent.Type.RETURN_COPY, events.get(2).getType());
+    assertEquals(LibraryEvent.Type.ADD_BOOK_COPY, events.get(3).getType());
+    assertEquals(2, events.get(3).getCopyNumber(), "New copy number should be given");
+    assertEquals(start + 4, events.get(3).getSequence(), "Sequence numbers should follow on");
+
+    // Independent consumers can read from different offsets
+    assertEquals(2, db.getEvents(start + 3, 10).size(), "Should read from the given offset");
+    assertEquals(1, db.getEvents(1, 1).size(), "Should stop at maxEvents");
+    assertEquals(LibraryEvent.Type.ADD_BOOK, db.getEvents(1, 1).get(0).getType());
+  }
+
+  @Test
+  public void testEventsFromBatchAndAnyCopy() {
+    long start = db.getLatestSequence();
+    assertEquals(1, db.checkoutAnyCopy("CallNumber1", "Email1"), "Copy 1 should be checked out");
+    List<Boolean> results =
+        db.applyBatch(
+            List.of(
+                LoanOperation.renew("CallNumber1", 1),
+                LoanOperation.checkout("CallNumber2", 1, "Email2")));
+    assertEquals(List.of(true, true), results, "Batch should be applied");
+    // A failed batch publishes nothing
+    db.applyBatch(List.of(LoanOperation.returnCopy("CallNumber3", 1)));
+
+    List<LibraryEvent> events = db.getEvents(start + 1, 10);
+    assertEquals(3, events.size(), "Each applied change should publish one event");
+    assertEquals(LibraryEvent.Type.CHECKOUT, events.get(0).getType());
+    assertEquals(1, events.get(0).getCopyNumber(), "Event should give the chosen copy");
+    assertEquals(LibraryEvent.Type.RENEW, events.get(1).getType());
+    assertEquals(LibraryEvent.Type.CHECKOUT, events.get(2).getType());
+    assertEquals("CallNumber2", events.get(2).getCallNumber());
+  }
+
+  @Test
+  public void testEventsFromHolds() {
+    assertTrue(db.checkout("CallNumber3", 1, "Email1"), "Checkout should succeed");
+    long start = db.getLatestSequence();
+    assertTrue(db.placeHold("CallNumber3", "Email2"), "Hold should be queued");
+    assertTrue(db.returnCopy("CallNumber3", 1), "Return should reserve the copy");
+    assertTrue(db.cancelHold("CallNumber3", "Email2"), "Cancel should end the reservation");
+    assertTrue(db.placeHold("CallNumber3", "Email1"), "Hold should reserve the free copy");
+    assertFalse(db.placeHold("CallNumber3", "Email1"), "Duplicate hold should be rejected");
+
+    List<LibraryEvent> events = db.getEvents(start + 1, 10);
+    assertEquals(
+        List.of(
+            LibraryEvent.Type.PLACE_HOLD,
+            LibraryEvent.Type.RETURN_COPY,
+            LibraryEvent.Type.RESERVE,
+            LibraryEvent.Type.CANCEL_HOLD,
+            LibraryEvent.Type.PLACE_HOLD,
+            LibraryEvent.Type.RESERVE),
+        events.stream().map(LibraryEvent::getType).collect(Collectors.toList()),
+        "Holds and reservations should publish events after the change that caused them");
+    assertEquals("Email2", events.get(0).getEmail());
+    assertEquals(0, events.get(0).getCopyNumber(), "A queued hold has no copy");
+    assertEquals(1, events.get(2).getCopyNumber(), "RESERVE should give the copy");
+    assertEquals("Email2", events.get(2).getEmail(), "RESERVE should give the borrower");
+    assertEquals(1, events.get(3).getCopyNumber(), "Cancelled reservation should give the copy");
+    assertEquals("Email1", events.get(5).getEmail());
+  }
+
+  @Test
+  public void testEventBufferOverrun() {
+    db.setEventBufferSize(4);
+    for (int i = 0; i < 10; i++) {
+      db.addBookCopy("CallNumber2");
+    }
+    long latest = db.getLatestSequence();
+    assertEquals(latest - 3, db.getOldestSequence(), "Only the last 4 events should be held");
+    assertEquals(4, db.getEvents(db.getOldestSequence(), 10).size(), "Held events are readable");
+    assertThrows(
+        IllegalStateException.class,
+        () -> db.getEvents(latest - 4, 10),
+        "Reading a dropped event should report that the consumer fell behind");
+  }
+
+  @Test
+  public void testMetricsForSeveralInstances() {
+    // Each instance registers its own MBean, so enabling metrics on two must not clash
+    LibraryDatabase other = LibraryDatabase.getInstance(true);
+    db.setMetricsEnabled(true);
+    other.setMetricsEnabled(true);
+    assertTrue(db.checkout("CallNumber1", 1, "Email1"), "Checkout should succeed");
+    assertEquals(1L, db.getMetrics().get("checkout.success"), "Should count own checkout");
+    assertEquals(0L, other.getMetrics().get("checkout.success"), "Counters should be separate");
+    other.setMetricsEnabled(false);
+    db.setMetricsEnabled(false);
+  }
+
+  @Test
+  public void testMetricsMBeanNames(@TempDir Path dir) throws Exception {
+    // A file name with characters that are special in ObjectNames, opened twice
+    String filename = dir.resolve("lib:a,b=\"c\"*?.db").toString();
+    LibraryDatabase first = LibraryDatabase.open(filename);
+    LibraryDatabase second = LibraryDatabase.open(filename);
+    first.setMetricsEnabled(true);
+    second.setMetricsEnabled(true);
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName pattern =
+        new ObjectName(
+            "library.model:type=LibraryDatabase,name=" + ObjectName.quote(filename) + ",*");
+    assertEquals(2, server.queryNames(pattern, null).size(), "Each instance should have an MBean");
+    first.setMetricsEnabled(false);
+    assertEquals(1, server.queryNames(pattern, null).size(), "Disabling should unregister");
+    second.setMetricsEnabled(false);
+    assertTrue(server.queryNames(pattern, null).isEmpty(), "Both MBeans should be unregistered");
+  }
+
+  @Test
+  public void testLoanHistory() {
+    LocalDate today = LocalDate.now();
+    assertTrue(db.checkout("CallNumber1", 1, "Email1"), "Checkout should succeed");
+    assertTrue(db.renew("CallNumber1", 1), "Renewal should succeed");
+    assertTrue(db.returnCopy("CallNumber1", 1), "Return should succeed");
+    assertTrue(db.checkout("CallNumber1", 1, "Email2"), "Checkout should succeed");
+    assertTrue(db.returnCopy("CallNumber1", 1), "Return should succeed");
+    assertTrue(db.checkout("CallNumber2", 1, "Email1"), "Checkout should succeed");
+    assertTrue(db.returnCopy("CallNumber2", 1), "Return should succeed");
+    // Loans still out are not part of the history
+    assertTrue(db.checkout("CallNumber3", 1, "Email2"), "Checkout should succeed");
+
+    assertEquals(
+        Map.of("CallNumber1", 2, "CallNumber2", 1),
+        db.getBorrowCountsByBook(today, today),
+        "Should count returned loans per book");
+    assertEquals(
+        Map.of("Email1", 2, "Email2", 1),
+        db.getBorrowCountsByBorrower(today.minusDays(7), today),
+        "Should count returned loans per borrower");
+    assertEquals(1, db.getRenewalCount(today, today), "Should count the renewed loan");
+
+    assertTrue(
+        db.getBorrowCountsByBook(today.plusDays(1), today.plusDays(30)).isEmpty(),
+        "Should find no loans outside the date range");
+    assertEquals(0, db.getRenewalCount(today.minusDays(30), today.minusDays(1)));
+
+    // With recording off, returns add nothing, but loans already recorded still count
+    db.setHistoryEnabled(false);
+    assertTrue(db.checkout("CallNumber2", 1, "Email2"), "Checkout should succeed");
+    assertTrue(db.returnCopy("CallNumber2", 1), "Return should succeed");
+    assertEquals(
+        Map.of("CallNumber1", 2, "CallNumber2", 1),
+        db.getBorrowCountsByBook(today, today),
+        "Returns should not be recorded while history is off");
+  }
+
+  @Test
+  public void testGetMetrics() {
+    Map<String, Long> metrics = db.getMetrics();
+    assertEquals(3L, metrics.get("books"), "Should count books");
+    assertEquals(4L, metrics.get("copies"), "Should count copies");
+    assertEquals(2L, metrics.get("borrowers"), "Should count borrowers");
+    assertEquals(0L, metrics.get("loans"), "Should count loans");
+    assertNull(metrics.get("checkout.success"), "Counters should be absent while disabled");
+
+    db.setMetricsEnabled(true);
+    assertTrue(db.checkout("CallNumber1", 1, "Email1"), "Checkout should succeed");
+    assertFalse(db.checkout("CallNumber1", 1, "Email2"), "Second checkout should fail");
+    assertFalse(db.returnCopy("CallNumber2", 1), "Return should fail");
+    assertNull(db.getCopyInfo("NonExistentBook", 1), "Copy info should be null");
+
+    metrics = db.getMetrics();
+    assertEquals(1L, metrics.get("checkout.success"), "Should count successful checkout");
+    assertEquals(1L, metrics.get("checkout.failure"), "Should count failed checkout");
+    assertEquals(0L, metrics.get("returnCopy.success"), "Should count no successful returns");
+    assertEquals(1L, metrics.get("returnCopy.failure"), "Should count failed return");
+    assertEquals(1L, metrics.get("getCopyInfo.failure"), "Should count failed copy info");
+    assertTrue(metrics.get("checkout.maxNanos") > 0, "Should record checkout latency");
+    assertEquals(1L, metrics.get("loans"), "Should count the loan");
+
+    db.setMetricsEnabled(false);
+    assertNull(db.getMetrics().get("checkout.success"), "Counters should be gone when disabled");
+  }
+
   @Test
   public void testGetBorrowerInfoNonExistent() {
     // Test with non-existent borrower email
@@ -0,0 +1,478 @@
+package library.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generates load on a LibraryDatabase, to reproduce production traffic locally.
+ *
+ * <p>It first builds a synthetic catalog through the public API: books whose number of copies
+ * follows a Zipf distribution (most books have one copy, a few have many), and borrowers. It then
+ * runs a mix of checkouts, returns, renewals and lookups on several threads at a target rate, with
+ * popular books chosen more often, also by a Zipf distribution. At the end it reports throughput,
+ * latency percentiles and any violations of the library's rules that it saw: a copy checked out
+ * while already on loan, a loan renewed more than once, a loan that could not be renewed the first
+ * time, or a loan that could not be returned.
+ *
+ * <p>Service time is measured around each database call alone, so it leaves out the generator's
+ * own work. At a target rate, response time is also reported: it runs from when the operation
+ * was meant to start, so it includes any delay from the database falling behind the schedule.
+ * To start operations on time, each thread parks until shortly before the start time and then
+ * spins, so it keeps a core busy for up to 100 microseconds per operation.
+ *
+ * <p>The schedule starts only once every worker thread is running, and the first warmupSeconds
+ * run the same mix without recording anything, so thread start-up and JIT compilation do not
+ * show up in the latencies. Throughput is computed over the measured seconds only.
+ *
+ * <p>Settings are given as name=value arguments, for example "books=100000 threads=8 rate=50000".
+ * See the fields below for the names and defaults.
+ */
+public class LibraryLoadGenerator {
+
+  // Settings, which can be changed by name=value arguments
+  private int books = 10000;
+  private int borrowers = 1000;
+  private int maxCopies = 20;
+  private double zipfExponent = 1.1;
+  private int threads = 4;
+  private double rate = 0; // operations per second over all threads, 0 for as fast as possible
+  private int warmupSeconds = 5; // run before measuring, with results left out of the report
+  private int seconds = 10;
+  private long seed = 42;
+
+  // Percentages of the operation mix; lookups make up the rest
+  private int checkoutPercent = 30;
+  private int returnPercent = 25;
+  private int renewPercent = 10;
+
+  private static final String[] OPERATIONS = {"checkout", "returnCopy", "renew", "lookup"};
+
+  // How long before an operation's start time a thread stops parking and starts spinning
+  private static final long SPIN_NANOS = 100_000;
+
+  private LibraryDatabase db;
+  private String[] callNumbers;
+  private String[] emails;
+  private int[] copies;
+  private double[] popularity; // cumulative probability of choosing each book
+
+  // The loan each checked-out copy belongs to, keyed by "callNumber#copyNumber"
+  private final ConcurrentHashMap<String, Long> loans = new ConcurrentHashMap<String, Long>();
+  private final AtomicLong nextLoan = new AtomicLong();
+  private final AtomicLong violations = new AtomicLong();
+
+  // The schedule, in System.nanoTime() terms, set once all workers are ready: operations start
+  // from start, are recorded from measureFrom, and stop at end
+  private long start;
+  private long measureFrom;
+  private long end;
+
+  /** Run the load generator with the given name=value settings, printing a report at the end. */
+  public static void main(String[] args) throws InterruptedException {
+    LibraryLoadGenerator generator = new LibraryLoadGenerator();
+    for (String arg : args) {
+      generator.set(arg);
+    }
+    generator.buildCatalog(LibraryDatabase.getInstance(true));
+    generator.run();
+  }
+
+  private void set(String arg) {
+    int equals = arg.indexOf('=');
+    if (equals < 0) {
+      throw new IllegalArgumentException("Expected name=value: " + arg);
+    }
+    String name = arg.substring(0, equals);
+    String value = arg.substring(equals + 1);
+    switch (name) {
+      case "books" -> books = Integer.parseInt(value);
+      case "borrowers" -> borrowers = Integer.parseInt(value);
+      case "maxCopies" -> maxCopies = Integer.parseInt(value);
+      case "zipfExponent" -> zipfExponent = Double.parseDouble(value);
+      case "threads" -> threads = Integer.parseInt(value);
+      case "rate" -> rate = Double.parseDouble(value);
+      case "warmupSeconds" -> warmupSeconds = Integer.parseInt(value);
+      case "seconds" -> seconds = Integer.parseInt(value);
+      case "seed" -> seed = Long.parseLong(value);
+      case "checkoutPercent" -> checkoutPercent = Integer.parseInt(value);
+      case "returnPercent" -> returnPercent = Integer.parseInt(value);
+      case "renewPercent" -> renewPercent = Integer.parseInt(value);
+      default -> throw new IllegalArgumentException("Unknown setting: " + name);
+    }
+  }
+
+  /**
+   * Get cumulative probabilities for ranks 1 to n under a Zipf distribution.
+   *
+   * @param n The number of ranks
+   * @param exponent The Zipf exponent; larger values favor the first ranks more
+   * @return An array whose element i is the probability of choosing rank i + 1 or lower
+   */
+  private static double[] zipf(int n, double exponent) {
+    double[] cumulative = new double[n];
+    double total = 0;
+    for (int i = 0; i < n; i++) {
+      total += 1 / Math.pow(i + 1, exponent);
+      cumulative[i] = total;
+    }
+    for (int i = 0; i < n; i++) {
+      cumulative[i] /= total;
+    }
+    return cumulative;
+  }
+
+  /** Choose a zero-based rank from cumulative probabilities. */
+  private static int choose(double[] cumulative, Random random) {
+    int index = Arrays.binarySearch(cumulative, random.nextDouble());
+    return Math.min(index < 0 ? -index - 1 : index, cumulative.length - 1);
+  }
+
+  private static String callNumber(int book) {
+    return String.format("QA%08d", book);
+  }
+
+  private static String email(int borrower) {
+    return "borrower" + borrower + "@example.com";
+  }
+
+  /** Fill an empty database with the synthetic catalog and borrowers. */
+  private void buildCatalog(LibraryDatabase db) {
+    this.db = db;
+    // The run returns many loans, which must not build up a loan history as it goes
+    db.setHistoryEnabled(false);
+    Random random = new Random(seed);
+    double[] copyCounts = zipf(maxCopies, zipfExponent);
+    copies = new int[books];
+    callNumbers = new String[books];
+    emails = new String[borrowers];
+    long start = System.nanoTime();
+    for (int book = 0; book < books; book++) {
+      callNumbers[book] = callNumber(book);
+      db.addBook("Title " + book, "Author " + (book % 5000), callNumbers[book]);
+      copies[book] = choose(copyCounts, random) + 1;
+      for (int copy = 0; copy < copies[book]; copy++) {
+        db.addBookCopy(callNumbers[book]);
+      }
+    }
+    for (int borrower = 0; borrower < borrowers; borrower++) {
+      emails[borrower] = email(borrower);
+      db.addBorrower("First" + borrower, "Last" + borrower, emails[borrower], "978-555-0000");
+    }
+    popularity = zipf(books, zipfExponent);
+    System.out.printf(
+        "Built %d books, %d borrowers in %.1f s%n",
+        books, borrowers, (System.nanoTime() - start) / 1e9);
+  }
+
+  /** A loan made by one worker thread, which only that thread returns or renews. */
+  private static class Loan {
+    final String callNumber;
+    final int copyNumber;
+    final long id;
+    final String key;
+    boolean renewed;
+
+    Loan(String callNumber, int copyNumber, long id) {
+      this.callNumber = callNumber;
+      this.copyNumber = copyNumber;
+      this.id = id;
+      this.key = callNumber + "#" + copyNumber;
+    }
+  }
+
+  /** The results gathered by one worker thread. */
+  private static class Results {
+    final LatencyHistogram[] serviceTime = new LatencyHistogram[OPERATIONS.length];
+    final LatencyHistogram[] responseTime = new LatencyHistogram[OPERATIONS.length];
+    final long[] successes = new long[OPERATIONS.length];
+    final long[] failures = new long[OPERATIONS.length];
+
+    // Set around the database call of the current operation; done stays 0 if there was no call
+    long begin;
+    long done;
+
+    Results() {
+      for (int i = 0; i < OPERATIONS.length; i++) {
+        serviceTime[i] = new LatencyHistogram();
+        responseTime[i] = new LatencyHistogram();
+      }
+    }
+  }
+
+  /**
+   * Run the operation mix on all threads for the warm-up and then the measured time, then print
+   * the report.
+   */
+  private void run() throws InterruptedException {
+    List<Thread> workers = new ArrayList<Thread>();
+    List<Results> results = new ArrayList<Results>();
+    CountDownLatch ready = new CountDownLatch(threads);
+    CountDownLatch go = new CountDownLatch(1);
+    for (int i = 0; i < threads; i++) {
+      Results threadResults = new Results();
+      Random random = new Random(seed + i + 1);
+      results.add(threadResults);
+      Runnable worker =
+          () -> {
+            ready.countDown();
+            try {
+              go.await();
+            } catch (InterruptedException e) {
+              return;
+            }
+            work(random, threadResults);
+          };
+      workers.add(new Thread(worker, "load-" + i));
+    }
+    for (Thread worker : workers) {
+      worker.start();
+    }
+    // Start the schedule only once every thread is waiting to run it
+    ready.await();
+    start = System.nanoTime();
+    measureFrom = start + warmupSeconds * 1_000_000_000L;
+    end = measureFrom + seconds * 1_000_000_000L;
+    go.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    report(results, (System.nanoTime() - measureFrom) / 1e9);
+  }
+
+  private void work(Random random, Results results) {
+    List<Loan> myLoans = new ArrayList<Loan>();
+    // Nanoseconds between operations on this thread, or 0 for as fast as possible
+    long interval = rate > 0 ? (long) (threads * 1e9 / rate) : 0;
+    long intended = start;
+    while (true) {
+      if (interval > 0) {
+        intended += interval;
+        long wait = intended - System.nanoTime();
+        if (wait > SPIN_NANOS) {
+          LockSupport.parkNanos(wait - SPIN_NANOS);
+        }
+        while (System.nanoTime() < intended) {
+          Thread.onSpinWait();
+        }
+      } else {
+        intended = System.nanoTime();
+      }
+      if (intended >= end) {
+        break;
+      }
+      int choice = random.nextInt(100);
+      int operation;
+      boolean ok;
+      results.done = 0;
+      if (choice < checkoutPercent) {
+        operation = 0;
+        ok = checkout(random, myLoans, results);
+      } else if (choice < checkoutPercent + returnPercent) {
+        operation = 1;
+        ok = returnCopy(random, myLoans, results);
+      } else if (choice < checkoutPercent + returnPercent + renewPercent) {
+        operation = 2;
+        ok = renew(random, myLoans, results);
+      } else {
+        operation = 3;
+        ok = lookup(random, results);
+      }
+      if (results.done == 0 || intended < measureFrom) {
+        // No loan to return or renew, so the database was not called, or still warming up
+        continue;
+      }
+      results.serviceTime[operation].record(results.done - results.begin);
+      if (interval > 0) {
+        results.responseTime[operation].record(results.done - intended);
+      }
+      if (ok) {
+        results.successes[operation]++;
+      } else {
+        results.failures[operation]++;
+      }
+    }
+  }
+
+  private boolean checkout(Random random, List<Loan> myLoans, Results results) {
+    int book = choose(popularity, random);
+    String callNumber = callNumbers[book];
+    int copyNumber = 1 + random.nextInt(copies[book]);
+    String email = emails[random.nextInt(borrowers)];
+    results.begin = System.nanoTime();
+    boolean ok = db.checkout(callNumber, copyNumber, email);
+    results.done = System.nanoTime();
+    if (!ok) {
+      return false;
+    }
+    Loan loan = new Loan(callNumber, copyNumber, nextLoan.incrementAndGet());
+    if (loans.putIfAbsent(loan.key, loan.id) != null) {
+      violation("copy checked out twice: " + loan.key);
+    }
+    myLoans.add(loan);
+    return true;
+  }
+
+  private boolean returnCopy(Random random, List<Loan> myLoans, Results results) {
+    if (myLoans.isEmpty()) {
+      return false;
+    }
+    Loan loan = myLoans.remove(random.nextInt(myLoans.size()));
+    // Forget the loan before returning it, so a checkout right after the return is not reported
+    loans.remove(loan.key, loan.id);
+    results.begin = System.nanoTime();
+    boolean ok = db.returnCopy(loan.callNumber, loan.copyNumber);
+    results.done = System.nanoTime();
+    if (!ok) {
+      violation("loan could not be returned: " + loan.key);
+    }
+    return ok;
+  }
+
+  private boolean renew(Random random, List<Loan> myLoans, Results results) {
+    if (myLoans.isEmpty()) {
+      return false;
+    }
+    Loan loan = myLoans.get(random.nextInt(myLoans.size()));
+    results.begin = System.nanoTime();
+    boolean renewed = db.renew(loan.callNumber, loan.copyNumber);
+    results.done = System.nanoTime();
+    if (renewed && loan.renewed) {
+      violation("loan renewed twice: " + loan.key);
+    } else if (!renewed && !loan.renewed) {
+      violation("loan could not be renewed: " + loan.key);
+    }
+    loan.renewed |= renewed;
+    return renewed;
+  }
+
+  private boolean lookup(Random random, Results results) {
+    String info;
+    if (random.nextBoolean()) {
+      int book = choose(popularity, random);
+      int copyNumber = 1 + random.nextInt(copies[book]);
+      results.begin = System.nanoTime();
+      info = db.getCopyInfo(callNumbers[book], copyNumber);
+    } else {
+      String email = emails[random.nextInt(borrowers)];
+      results.begin = System.nanoTime();
+      info = db.getBorrowerInfo(email);
+    }
+    results.done = System.nanoTime();
+    return info != null;
+  }
+
+  private void violation(String description) {
+    if (violations.incrementAndGet() <= 10) {
+      System.err.println("Invariant violation: " + description);
+    }
+  }
+
+  private void report(List<Results> results, double elapsedSeconds) {
+    long total = 0;
+    System.out.println("Service time (database call only):");
+    System.out.printf(
+        "%-12s %10s %10s %10s %10s %10s%n",
+        "operation", "ok", "failed", "p50 us", "p99 us", "p999 us");
+    for (int op = 0; op < OPERATIONS.length; op++) {
+      LatencyHistogram latency = new LatencyHistogram();
+      long successes = 0;
+      long failures = 0;
+      for (Results threadResults : results) {
+        latency.add(threadResults.serviceTime[op]);
+        successes += threadResults.successes[op];
+        failures += threadResults.failures[op];
+      }
+      total += successes + failures;
+      System.out.printf(
+          "%-12s %10d %10d %10.1f %10.1f %10.1f%n",
+          OPERATIONS[op],
+          successes,
+          failures,
+          latency.percentile(50) / 1e3,
+          latency.percentile(99) / 1e3,
+          latency.percentile(99.9) / 1e3);
+    }
+    if (rate > 0) {
+      System.out.println("Response time (from scheduled start):");
+      System.out.printf("%-12s %10s %10s %10s%n", "operation", "p50 us", "p99 us", "p999 us");
+      for (int op = 0; op < OPERATIONS.length; op++) {
+        LatencyHistogram latency = new LatencyHistogram();
+        for (Results threadResults : results) {
+          latency.add(threadResults.responseTime[op]);
+        }
+        System.out.printf(
+            "%-12s %10.1f %10.1f %10.1f%n",
+            OPERATIONS[op],
+            latency.percentile(50) / 1e3,
+            latency.percentile(99) / 1e3,
+            latency.percentile(99.9) / 1e3);
+      }
+    }
+    System.out.printf(
+        "%d operations in %.1f s: %.0f ops/s on %d threads%n",
+        total, elapsedSeconds, total / elapsedSeconds, threads);
+    System.out.println("Invariant violations: " + violations.get());
+  }
+
+  /**
+   * Counts latencies in buckets that are exact below 64 ns, then split each power of two into 32
+   * sub-buckets, for about 3% precision up to the largest long.
+   */
+  private static class LatencyHistogram {
+    private static final int SUB_BUCKETS = 32;
+    private final long[] counts = new long[64 + 58 * SUB_BUCKETS];
+    private long total;
+
+    void record(long nanos) {
+      nanos = Math.max(nanos, 0);
+      counts[index(nanos)]++;
+      total++;
+    }
+
+    void add(LatencyHistogram other) {
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] += other.counts[i];
+      }
+      total += other.total;
+    }
+
+    private static int index(long nanos) {
+      if (nanos < 64) {
+        return (int) nanos;
+      }
+      int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+      int shift = exponent - 5;
+      return 64 + (exponent - 6) * SUB_BUCKETS + (int) (nanos >>> shift) - SUB_BUCKETS;
+    }
+
+    /** Get the highest latency in the bucket at the given index. */
+    private static long highestValue(int index) {
+      if (index < 64) {
+        return index;
+      }
+      int exponent = (index - 64) / SUB_BUCKETS + 6;
+      int shift = exponent - 5;
+      long sub = (index - 64) % SUB_BUCKETS + SUB_BUCKETS;
+      return ((sub + 1) << shift) - 1;
+    }
+
+    /** Get the latency at or below which the given percentage of recorded latencies fall. */
+    long percentile(double percent) {
+      long wanted = (long) Math.ceil(total * percent / 100);
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= wanted && seen > 0) {
+          return highestValue(i);
+        }
+      }
+      return 0;
+    }
+  }
+}
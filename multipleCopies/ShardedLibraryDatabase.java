@@ -0,0 +1,108 @@
+package library.model;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.NavigableSet;
+
+/**
+ * Spreads a library over several independent LibraryDatabase shards, each with its own file, so
+ * that work on different shards can run in parallel. Books (with their copies and loans) are
+ * routed to a shard by call number, either by hash or by range.
+ *
+ * <p>Every borrower is added to every shard, so each shard can check out its own books. Reports
+ * that cover the whole library merge the shards, in callNumber or email order.
+ *
+ * <p>Methods have the same meaning and results as the LibraryDatabase methods of the same name.
+ */
+public class ShardedLibraryDatabase {
+
+  // All implementation code is omitted, but comments and declarations
+  // are included, to define the interface used by unit tests.
+
+  /**
+   * Create a sharded library that routes each call number to the shard chosen by its hash code:
+   * shard Math.floorMod(callNumber.hashCode(), shards.size()). String.hashCode() is defined by the
+   * Java language, so a book goes to the same shard in every run, as long as the shards are given
+   * in the same order. Changing the number of shards moves most books to a different shard.
+   *
+   * @param shards The shards, typically created with LibraryDatabase.open()
+   * @return A ShardedLibraryDatabase using the given shards
+   * @throws IllegalArgumentException if shards is empty
+   */
+  public static ShardedLibraryDatabase byHash(List<LibraryDatabase> shards) {
+  }
+
+  /**
+   * Create a sharded library that routes call numbers by range. Shard 0 holds call numbers before
+   * splitPoints[0], shard i holds call numbers from splitPoints[i-1] up to but not including
+   * splitPoints[i], and the last shard holds the rest.
+   *
+   * @param splitPoints The call numbers where each shard after the first begins, in sorted order
+   * @param shards The shards, one more than the number of split points
+   * @return A ShardedLibraryDatabase using the given shards
+   * @throws IllegalArgumentException if the split points are not sorted, or there is not exactly
+   *     one more shard than split points
+   */
+  public static ShardedLibraryDatabase byRange(
+      List<String> splitPoints, List<LibraryDatabase> shards) {
+  }
+
+  /**
+   * Get the shard that holds a book.
+   *
+   * @param callNumber The call number of the book
+   * @return The shard that holds, or would hold, the book
+   */
+  public LibraryDatabase getShard(String callNumber) {
+  }
+
+  public boolean addBook(String title, String author, String callNumber) {
+  }
+
+  public boolean addBookCopy(String callNumber) {
+  }
+
+  /** Add a borrower to every shard. */
+  public boolean addBorrower(String firstName, String lastName, String email, String phone) {
+  }
+
+  /**
+   * Get callNumbers of all books in every shard.
+   *
+   * @return A sorted set of all callNumbers, merged from the shards. It is not a live view.
+   */
+  public NavigableSet<String> getCallNumbers() {
+  }
+
+  public NavigableSet<String> getEmails() {
+  }
+
+  /** Get the report of all books in every shard, merged in callNumber order. */
+  public String getBookCsv() {
+  }
+
+  public String getBorrowerCsv() {
+  }
+
+  public boolean checkout(String callNumber, int copyNumber, String email) {
+  }
+
+  public boolean isCheckedOut(String callNumber, int copyNumber) {
+  }
+
+  public boolean returnCopy(String callNumber, int copyNumber) {
+  }
+
+  public LocalDate getDueDate(String callNumber, int copyNumber) {
+  }
+
+  public boolean renew(String callNumber, int copyNumber) {
+  }
+
+  public String getCopyInfo(String callNumber, int copyNumber) {
+  }
+
+  /** Get info about a borrower, listing their loans from every shard in callNumber order. */
+  public String getBorrowerInfo(String email) {
+  }
+}
@@ -0,0 +1,102 @@
+package library.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.TreeSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ShardedLibraryDatabaseTest {
+  private LibraryDatabase shard0;
+  private LibraryDatabase shard1;
+  private ShardedLibraryDatabase db;
+
+  @BeforeEach
+  public void setUp() {
+    shard0 = LibraryDatabase.getInstance(true);
+    shard1 = LibraryDatabase.getInstance(true);
+    // CallNumber1 goes to shard 0, CallNumber2 and CallNumber3 go to shard 1
+    db = ShardedLibraryDatabase.byRange(List.of("CallNumber2"), List.of(shard0, shard1));
+    db.addBook("Title3", "Author3", "CallNumber3");
+    db.addBook("Title1", "Author1", "CallNumber1");
+    db.addBook("Title2", "Author2", "CallNumber2");
+    db.addBookCopy("CallNumber1");
+    db.addBookCopy("CallNumber1");
+    db.addBookCopy("CallNumber2");
+    db.addBookCopy("CallNumber3");
+    db.addBorrower("FirstName1", "LastName1", "Email1", "Phone1");
+    db.addBorrower("FirstName2", "LastName2", "Email2", "Phone2");
+  }
+
+  @Test
+  public void testRoutingByRange() {
+    assertSame(shard0, db.getShard("CallNumber1"), "CallNumber1 should be in shard 0");
+    assertSame(shard1, db.getShard("CallNumber2"), "Split point should start shard 1");
+    assertEquals(new TreeSet<String>(List.of("CallNumber1")), shard0.getCallNumbers());
+    assertEquals(
+        new TreeSet<String>(List.of("CallNumber2", "CallNumber3")), shard1.getCallNumbers());
+    assertEquals(shard0.getEmails(), shard1.getEmails(), "Borrowers should be in every shard");
+  }
+
+  @Test
+  public void testRoutingByHash() {
+    List<LibraryDatabase> shards =
+        List.of(LibraryDatabase.getInstance(true), LibraryDatabase.getInstance(true));
+    ShardedLibraryDatabase hashed = ShardedLibraryDatabase.byHash(shards);
+    for (int i = 0; i < 20; i++) {
+      assertSame(
+          shards.get(Math.floorMod(("CallNumber" + i).hashCode(), 2)),
+          hashed.getShard("CallNumber" + i),
+          "Routing should follow the documented hash, so it is the same in every run");
+      assertTrue(hashed.addBook("Title", "Author", "CallNumber" + i), "Add should succeed");
+      assertTrue(
+          hashed.getShard("CallNumber" + i).getCallNumbers().contains("CallNumber" + i),
+          "Book should be in its shard");
+    }
+    assertFalse(hashed.addBook("Title", "Author", "CallNumber5"), "Duplicate should be rejected");
+    assertEquals(20, hashed.getCallNumbers().size(), "Merged call numbers should have all books");
+  }
+
+  @Test
+  public void testMergedReports() {
+    assertEquals(
+        new TreeSet<String>(List.of("CallNumber1", "CallNumber2", "CallNumber3")),
+        db.getCallNumbers(),
+        "Call numbers should be merged from all shards");
+    String expectedCsv =
+        "\"Title1\",\"Author1\",\"CallNumber1\",2\n"
+            + "\"Title2\",\"Author2\",\"CallNumber2\",1\n"
+            + "\"Title3\",\"Author3\",\"CallNumber3\",1\n";
+    assertEquals(expectedCsv, db.getBookCsv(), "CSV should be merged in call number order");
+    String expectedBorrowers =
+        "\"FirstName1\",\"LastName1\",\"Email1\",\"Phone1\"\n"
+            + "\"FirstName2\",\"LastName2\",\"Email2\",\"Phone2\"\n";
+    assertEquals(expectedBorrowers, db.getBorrowerCsv(), "Borrowers should appear once each");
+  }
+
+  @Test
+  public void testLoansAcrossShards() {
+    assertTrue(db.checkout("CallNumber3", 1, "Email1"), "Checkout in shard 1 should succeed");
+    assertTrue(db.checkout("CallNumber1", 2, "Email1"), "Checkout in shard 0 should succeed");
+    assertTrue(shard1.isCheckedOut("CallNumber3", 1), "Loan should be in shard 1");
+    assertTrue(db.renew("CallNumber1", 2), "Renewal should succeed");
+
+    String expected =
+        "\"FirstName1\", \"LastName1\", \"Email1\", \"Phone1\"\n"
+            + "* \"CallNumber1\", 2, \"Title1\", \"Author1\", "
+            + LocalDate.now().plusDays(56).toString()
+            + ", true\n"
+            + "* \"CallNumber3\", 1, \"Title3\", \"Author3\", "
+            + LocalDate.now().plusDays(28).toString()
+            + ", false\n";
+    assertEquals(
+        expected,
+        db.getBorrowerInfo("Email1"),
+        "Loans from all shards should be listed in call number order");
+    assertTrue(db.returnCopy("CallNumber3", 1), "Return should succeed");
+    assertFalse(db.isCheckedOut("CallNumber3", 1), "Copy should be returned");
+    assertNull(db.getCopyInfo("CallNumber1", 3), "Unknown copy should give null");
+  }
+}